@@ -0,0 +1,40 @@
+package com.example.incidentreporter.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuración del cliente push FCM (prefijo fcm.client).
+ * DEFAULTS replica los valores por defecto de application.properties para construir
+ * el cliente fuera de Spring (pruebas y benchmarks).
+ *
+ * @param maxInFlight          llamadas a FCM en vuelo como máximo, entre todos los envíos
+ * @param acquireTimeoutMs     espera máxima por una llamada libre; con 0 se rechaza de inmediato
+ * @param deadlineMs           deadline de cada llamada
+ * @param maxAttempts          intentos por llamada, incluido el primero
+ * @param retryBackoffMs       base del backoff exponencial entre intentos
+ * @param chunksPerMulticast   lotes de 500 tokens en vuelo a la vez dentro de un mismo envío multicast
+ * @param circuit              circuit breaker
+ */
+@ConfigurationProperties(prefix = "fcm.client")
+public record FcmClientProperties(
+        @DefaultValue("32") int maxInFlight,
+        @DefaultValue("1000") long acquireTimeoutMs,
+        @DefaultValue("10000") long deadlineMs,
+        @DefaultValue("3") int maxAttempts,
+        @DefaultValue("500") long retryBackoffMs,
+        @DefaultValue("8") int chunksPerMulticast,
+        @DefaultValue Circuit circuit) {
+
+    public static final FcmClientProperties DEFAULTS =
+            new FcmClientProperties(32, 1000, 10000, 3, 500, 8, new Circuit(5, 30000));
+
+    /**
+     * @param failureThreshold fallos seguidos que abren el circuito
+     * @param openMs           tiempo que el circuito permanece abierto
+     */
+    public record Circuit(
+            @DefaultValue("5") int failureThreshold,
+            @DefaultValue("30000") long openMs) {
+    }
+}
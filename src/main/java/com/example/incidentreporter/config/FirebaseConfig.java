@@ -4,6 +4,7 @@ import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 
@@ -11,6 +12,7 @@ import javax.annotation.PostConstruct;
 import java.io.IOException;
 
 @Configuration
+@EnableConfigurationProperties(FcmClientProperties.class)
 public class FirebaseConfig {
 
     @Value("${firebase.credential.path}")
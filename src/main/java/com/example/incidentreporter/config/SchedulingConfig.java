@@ -0,0 +1,73 @@
+package com.example.incidentreporter.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Un scheduler de un hilo por job programado, para que un job lento (p. ej. el envío
+ * de pushes pendientes) no retrase a los demás. Cada @Scheduled indica el suyo con
+ * el atributo scheduler.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    public static final String EXPIRY_SCHEDULER = "expiryScheduler";
+    public static final String LOCATION_CLEANUP_SCHEDULER = "locationCleanupScheduler";
+    public static final String LOCATION_FLUSH_SCHEDULER = "locationFlushScheduler";
+    public static final String NOTIFICATION_DISPATCH_SCHEDULER = "notificationDispatchScheduler";
+    public static final String FANOUT_POLL_SCHEDULER = "fanoutPollScheduler";
+    public static final String JWKS_REFRESH_SCHEDULER = "jwksRefreshScheduler";
+    public static final String INDEX_SYNC_SCHEDULER = "indexSyncScheduler";
+    public static final String GRID_SYNC_SCHEDULER = "gridSyncScheduler";
+
+    @Bean(EXPIRY_SCHEDULER)
+    public ThreadPoolTaskScheduler expiryScheduler() {
+        return scheduler("job-expiry-");
+    }
+
+    @Bean(LOCATION_CLEANUP_SCHEDULER)
+    public ThreadPoolTaskScheduler locationCleanupScheduler() {
+        return scheduler("job-location-cleanup-");
+    }
+
+    @Bean(LOCATION_FLUSH_SCHEDULER)
+    public ThreadPoolTaskScheduler locationFlushScheduler() {
+        return scheduler("job-location-flush-");
+    }
+
+    @Bean(NOTIFICATION_DISPATCH_SCHEDULER)
+    public ThreadPoolTaskScheduler notificationDispatchScheduler() {
+        return scheduler("job-notification-dispatch-");
+    }
+
+    @Bean(FANOUT_POLL_SCHEDULER)
+    public ThreadPoolTaskScheduler fanoutPollScheduler() {
+        return scheduler("job-fanout-poll-");
+    }
+
+    @Bean(JWKS_REFRESH_SCHEDULER)
+    public ThreadPoolTaskScheduler jwksRefreshScheduler() {
+        return scheduler("job-jwks-refresh-");
+    }
+
+    @Bean(INDEX_SYNC_SCHEDULER)
+    public ThreadPoolTaskScheduler indexSyncScheduler() {
+        return scheduler("job-index-sync-");
+    }
+
+    @Bean(GRID_SYNC_SCHEDULER)
+    public ThreadPoolTaskScheduler gridSyncScheduler() {
+        return scheduler("job-grid-sync-");
+    }
+
+    private static ThreadPoolTaskScheduler scheduler(String threadNamePrefix) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        // Al apagar se deja terminar la ejecución en curso
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(10);
+        return scheduler;
+    }
+}
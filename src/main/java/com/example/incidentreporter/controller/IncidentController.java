@@ -1,5 +1,6 @@
 package com.example.incidentreporter.controller;
 
+import com.example.incidentreporter.dto.CursorPage;
 import com.example.incidentreporter.dto.IncidentConfirmationRequest;
 import com.example.incidentreporter.dto.IncidentDTO;
 import com.example.incidentreporter.dto.IncidentRequest;
@@ -31,7 +32,7 @@ public class IncidentController {
     public ResponseEntity<IncidentDTO> createIncident(
             @Valid @RequestBody IncidentRequest request,
             Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         IncidentDTO createdIncident = incidentService.createIncident(request, currentUser);
         return ResponseEntity.ok(createdIncident);
     }
@@ -45,7 +46,7 @@ public class IncidentController {
             @RequestParam double lng,
             @RequestParam(defaultValue = "1000") double radius,
             Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         List<IncidentDTO> incidents = incidentService.getIncidentsNearby(lat, lng, radius, currentUser);
         return ResponseEntity.ok(incidents);
     }
@@ -60,11 +61,27 @@ public class IncidentController {
             @RequestParam(defaultValue = "1000") double radius,
             Pageable pageable,
             Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         Page<IncidentDTO> incidents = incidentService.getIncidentsNearbyPaged(lat, lng, radius, currentUser, pageable);
         return ResponseEntity.ok(incidents);
     }
 
+    /**
+     * Obtener incidentes cercanos paginando por cursor (distancia + id)
+     */
+    @GetMapping("/nearby/cursor")
+    public ResponseEntity<CursorPage<IncidentDTO>> getIncidentsNearbyByCursor(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "1000") double radius,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+        User currentUser = userService.getCurrentUser(authentication);
+        CursorPage<IncidentDTO> incidents = incidentService.getIncidentsNearby(lat, lng, radius, currentUser, cursor, size);
+        return ResponseEntity.ok(incidents);
+    }
+
     /**
      * Obtener incidente por ID
      */
@@ -72,7 +89,7 @@ public class IncidentController {
     public ResponseEntity<IncidentDTO> getIncidentById(
             @PathVariable String id,
             Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         IncidentDTO incident = incidentService.getIncidentById(id, currentUser);
         return ResponseEntity.ok(incident);
     }
@@ -85,7 +102,7 @@ public class IncidentController {
             @PathVariable String id,
             @Valid @RequestBody IncidentConfirmationRequest request,
             Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         IncidentDTO incident = incidentService.confirmIncident(id, request, currentUser);
         return ResponseEntity.ok(incident);
     }
@@ -26,7 +26,7 @@ public class LocationController {
     public ResponseEntity<LocationDTO> updateLocation(
             @Valid @RequestBody UserLocationRequest request,
             Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         LocationDTO location = locationService.updateUserLocation(request, currentUser);
 
         if (location == null) {
@@ -41,7 +41,7 @@ public class LocationController {
      */
     @GetMapping("/current")
     public ResponseEntity<LocationDTO> getCurrentLocation(Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         LocationDTO location = locationService.getCurrentLocation(currentUser);
 
         if (location == null) {
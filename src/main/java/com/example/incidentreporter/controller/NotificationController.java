@@ -1,5 +1,6 @@
 package com.example.incidentreporter.controller;
 
+import com.example.incidentreporter.dto.CursorPage;
 import com.example.incidentreporter.entity.Notification;
 import com.example.incidentreporter.entity.User;
 import com.example.incidentreporter.service.NotificationService;
@@ -26,11 +27,24 @@ public class NotificationController {
     public ResponseEntity<Page<Notification>> getUserNotifications(
             Pageable pageable,
             Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         Page<Notification> notifications = notificationService.getUserNotifications(currentUser, pageable);
         return ResponseEntity.ok(notifications);
     }
 
+    /**
+     * Obtener notificaciones del usuario paginando por cursor
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<Notification>> getUserNotificationsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+        User currentUser = userService.getCurrentUser(authentication);
+        CursorPage<Notification> notifications = notificationService.getUserNotifications(currentUser, cursor, size);
+        return ResponseEntity.ok(notifications);
+    }
+
     /**
      * Marcar notificación como leída
      */
@@ -38,7 +52,7 @@ public class NotificationController {
     public ResponseEntity<Notification> markAsRead(
             @PathVariable String id,
             Authentication authentication) {
-        User currentUser = userService.getUserByAuth0Id(authentication.getName());
+        User currentUser = userService.getCurrentUser(authentication);
         Notification notification = notificationService.markAsRead(id, currentUser);
         return ResponseEntity.ok(notification);
     }
@@ -25,7 +25,7 @@ public class UserController {
     @GetMapping("/profile")
     public ResponseEntity<UserDTO> getUserProfile(Authentication authentication) {
 
-        User user = userService.getUserByAuth0Id(authentication.getName());
+        User user = userService.getCurrentUser(authentication);
         UserDTO userDTO = UserDTO.builder()
                 .id(user.getId())
                 .email(user.getEmail())
@@ -54,7 +54,7 @@ public class UserController {
     public ResponseEntity<UserDTO> updateProfile(
             @RequestBody UserDTO userDTO,
             Authentication authentication) {
-        User user = userService.getUserByAuth0Id(authentication.getName());
+        User user = userService.getCurrentUser(authentication);
 
         // Actualizar campos permitidos
         if (userDTO.getFirstName() != null) user.setFirstName(userDTO.getFirstName());
@@ -191,7 +191,7 @@ public class UserController {
             @RequestBody UserDTO userDTO,
             Authentication authentication) {
 
-        User user = userService.getUserByAuth0Id(authentication.getName());
+        User user = userService.getCurrentUser(authentication);
 
         // Validar campos obligatorios
         if (userDTO.getFirstName() == null || userDTO.getFirstName().trim().isEmpty() ||
@@ -243,7 +243,7 @@ public class UserController {
     public ResponseEntity<UserDTO> updateSettings(
             @RequestBody Map<String, Object> settings,
             Authentication authentication) {
-        User user = userService.getUserByAuth0Id(authentication.getName());
+        User user = userService.getCurrentUser(authentication);
 
         boolean notificationsEnabled = settings.containsKey("notificationsEnabled") ?
                 (boolean) settings.get("notificationsEnabled") : user.isNotificationsEnabled();
@@ -0,0 +1,9 @@
+package com.example.incidentreporter.dto;
+
+/**
+ * Proyección mínima (id, token FCM) para recorrer tokens sin cargar entidades User
+ */
+public interface FcmTokenView {
+    String getId();
+    String getFcmToken();
+}
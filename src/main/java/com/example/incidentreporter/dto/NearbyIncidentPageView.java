@@ -0,0 +1,8 @@
+package com.example.incidentreporter.dto;
+
+/**
+ * Fila de una página de incidentes cercanos con el total de resultados de la búsqueda
+ */
+public interface NearbyIncidentPageView extends NearbyIncidentView {
+    long getTotalCount();
+}
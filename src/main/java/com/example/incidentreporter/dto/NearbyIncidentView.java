@@ -0,0 +1,33 @@
+package com.example.incidentreporter.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Proyección plana de un incidente cercano: campos del incidente, datos del reportero,
+ * distancia al punto de consulta, si el usuario actual ya interactuó con él y sus imágenes
+ */
+public interface NearbyIncidentView {
+    String getId();
+    String getReporterId();
+    String getReporterEmail();
+    double getLatitude();
+    double getLongitude();
+    String getAddress();
+    String getTitle();
+    String getDescription();
+    String getSeverity();
+    String getCategory();
+    String getStatus();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+    LocalDateTime getExpiresAt();
+    int getConfirmationCount();
+    int getDenialCount();
+    double getRadius();
+    LocalDateTime getLastConfirmationAt();
+    String getAudioUrl();
+    double getDistance();
+    boolean getUserHasConfirmed();
+    List<String> getImageUrls();
+}
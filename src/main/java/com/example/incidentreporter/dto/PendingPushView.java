@@ -0,0 +1,12 @@
+package com.example.incidentreporter.dto;
+
+/**
+ * Notificación pendiente de push reclamada por el dispatcher, con el token y la
+ * preferencia de notificaciones de su usuario
+ */
+public interface PendingPushView {
+    String getId();
+    String getIncidentId();
+    String getFcmToken();
+    boolean getNotificationsEnabled();
+}
@@ -71,8 +71,7 @@ public class Incident {
     // Radio de afectación (FIJO - no cambia)
     private double radius; // Radio en metros
 
-    // Color del overlay (calculado dinámicamente)
-    private double intensityLevel = 0; // 0-100, basado en confirmaciones vs tiempo
+    // Color del overlay: la intensidad (0-100) se calcula al leer con IncidentIntensity
     private LocalDateTime lastConfirmationAt;
 
     // Media attachments (para futuras expansiones)
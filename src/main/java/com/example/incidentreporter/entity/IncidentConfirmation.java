@@ -10,7 +10,8 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "incident_confirmations")
+@Table(name = "incident_confirmations",
+        uniqueConstraints = @UniqueConstraint(name = "uq_incident_confirmations_incident_user", columnNames = {"incident_id", "user_id"}))
 @Data
 @Builder
 @NoArgsConstructor
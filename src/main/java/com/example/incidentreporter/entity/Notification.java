@@ -7,7 +7,8 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications",
+        indexes = @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at DESC, id DESC"))
 @Data
 @Getter
 @Setter
@@ -47,12 +48,19 @@ public class Notification {
     private boolean pushNotificationSent = false;
     private String pushNotificationId;
 
+    // Reintentos del push: intentos hechos y momento a partir del cual puede volver a enviarse
+    private int attempts = 0;
+    private LocalDateTime nextAttemptAt;
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = this.createdAt;
+        }
     }
 
     public enum NotificationStatus {
-        PENDING, DELIVERED, READ, RESPONDED
+        PENDING, DELIVERED, READ, RESPONDED, FAILED
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.incidentreporter.entity;
+
+import com.example.incidentreporter.enums.NotificationType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "notification_outbox",
+        indexes = @Index(name = "idx_notification_outbox_status_next_attempt", columnList = "status, next_attempt_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    // Incidente cuya notificación hay que repartir
+    @Column(nullable = false)
+    private String incidentId;
+
+    @Enumerated(EnumType.STRING)
+    private NotificationType type;
+
+    // Estado del procesamiento
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Builder.Default
+    private int attempts = 0;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime claimedAt;
+    private LocalDateTime processedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = this.createdAt;
+        }
+    }
+
+    public enum OutboxStatus {
+        PENDING, PROCESSING, DONE, FAILED
+    }
+}
@@ -11,7 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_fcm_token", columnList = "fcm_token"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -33,6 +33,9 @@ public class User {
 
     private LocalDateTime lastActiveAt;
 
+    // Último cambio del perfil; la malla de posiciones de cada nodo se resincroniza por este campo
+    private LocalDateTime updatedAt;
+
     private boolean profileCompleted;
 
     // Información adicional del perfil
@@ -50,6 +53,9 @@ public class User {
     private int totalIncidentsReported = 0;
     private int totalConfirmations = 0;
     private double verificationScore = 50.0; // Puntuación inicial de confiabilidad (0-100)
+    // Votos de otros usuarios sobre sus incidentes; verificationScore se deriva de ellos
+    private int confirmationsReceived = 0;
+    private int denialsReceived = 0;
 
     // FCM Token para notificaciones push
     private String fcmToken;
@@ -61,5 +67,11 @@ public class User {
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
         this.lastActiveAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
     }
 }
\ No newline at end of file
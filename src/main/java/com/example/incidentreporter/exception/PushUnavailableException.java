@@ -0,0 +1,11 @@
+package com.example.incidentreporter.exception;
+
+public class PushUnavailableException extends RuntimeException {
+    public PushUnavailableException(String message) {
+        super(message);
+    }
+
+    public PushUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
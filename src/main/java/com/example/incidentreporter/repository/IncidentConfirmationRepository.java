@@ -8,8 +8,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface IncidentConfirmationRepository extends JpaRepository<IncidentConfirmation, String> {
@@ -18,6 +20,16 @@ public interface IncidentConfirmationRepository extends JpaRepository<IncidentCo
 
     List<IncidentConfirmation> findByIncident(Incident incident);
 
+    @Query(value = "SELECT ic.incident.id FROM IncidentConfirmation ic WHERE ic.user = :user AND ic.incident.id IN :incidentIds")
+    Set<String> findIncidentIdsInteractedByUser(@Param("user") User user, @Param("incidentIds") Collection<String> incidentIds);
+
+    // Usuarios que no deben recibir otra actualización del incidente: ya votaron o ya fueron avisados
+    @Query(value = "SELECT ic.user_id FROM incident_confirmations ic WHERE ic.incident_id = :incidentId " +
+            "UNION " +
+            "SELECT n.user_id FROM notifications n WHERE n.incident_id = :incidentId AND n.type = 'INCIDENT_UPDATE'",
+            nativeQuery = true)
+    Set<String> findUserIdsExcludedFromUpdates(@Param("incidentId") String incidentId);
+
     @Query(value = "SELECT COUNT(ic) FROM IncidentConfirmation ic WHERE ic.incident = :incident AND ic.action = 'CONFIRMED'")
     long countConfirmationsByIncident(@Param("incident") Incident incident);
 
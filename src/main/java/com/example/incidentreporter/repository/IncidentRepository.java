@@ -1,12 +1,14 @@
 package com.example.incidentreporter.repository;
 
+import com.example.incidentreporter.dto.NearbyIncidentPageView;
+import com.example.incidentreporter.dto.NearbyIncidentView;
 import com.example.incidentreporter.entity.Incident;
 import com.example.incidentreporter.entity.User;
 import com.example.incidentreporter.enums.IncidentStatus;
-import org.locationtech.jts.geom.Point;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,27 +19,88 @@ import java.util.List;
 @Repository
 public interface IncidentRepository extends JpaRepository<Incident, String> {
 
-    @Query(value = "SELECT i, ST_DistanceSphere(i.location, :point) as distance " +
-            "FROM Incident i " +
-            "WHERE ST_DistanceSphere(i.location, :point) <= :radius " +
-            "AND i.status = 'ACTIVE' " +
-            "ORDER BY distance ASC")
-    List<Object[]> findIncidentsWithinRadius(@Param("point") Point point, @Param("radius") double radius);
+    // Todo lo que necesita el DTO sale de una sola sentencia, imágenes incluidas
+    String NEARBY_COLUMNS = "SELECT i.id AS id, i.reporter_id AS \"reporterId\", u.email AS \"reporterEmail\", " +
+            "i.latitude AS latitude, i.longitude AS longitude, i.address AS address, i.title AS title, " +
+            "i.description AS description, i.severity AS severity, i.category AS category, i.status AS status, " +
+            "i.created_at AS \"createdAt\", i.updated_at AS \"updatedAt\", i.expires_at AS \"expiresAt\", " +
+            "i.confirmation_count AS \"confirmationCount\", i.denial_count AS \"denialCount\", i.radius AS radius, " +
+            "i.last_confirmation_at AS \"lastConfirmationAt\", i.audio_url AS \"audioUrl\", " +
+            "ST_DistanceSphere(i.location, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)) AS distance, " +
+            "EXISTS (SELECT 1 FROM incident_confirmations ic WHERE ic.incident_id = i.id AND ic.user_id = :userId) AS \"userHasConfirmed\", " +
+            "ARRAY(SELECT img.image_urls FROM incident_image_urls img WHERE img.incident_id = i.id) AS \"imageUrls\" ";
 
-    @Query(value = "SELECT i, ST_DistanceSphere(i.location, :point) as distance " +
-            "FROM Incident i " +
-            "WHERE ST_DistanceSphere(i.location, :point) <= :radius " +
-            "AND i.status = 'ACTIVE' " +
-            "ORDER BY distance ASC")
-    Page<Object[]> findIncidentsWithinRadiusPaged(@Param("point") Point point, @Param("radius") double radius, Pageable pageable);
+    String NEARBY_FROM = "FROM incidents i JOIN users u ON u.id = i.reporter_id ";
 
-    @Query(value = "SELECT i FROM Incident i WHERE i.status = 'ACTIVE' AND i.expiresAt < :now")
-    List<Incident> findExpiredIncidents(@Param("now") LocalDateTime now);
+    String NEARBY_SELECT = NEARBY_COLUMNS + NEARBY_FROM;
 
-    List<Incident> findByReporterAndStatusOrderByCreatedAtDesc(User reporter, IncidentStatus status);
+    String NEARBY_FILTER = "WHERE i.status = 'ACTIVE' " +
+            "AND ST_DWithin(CAST(i.location AS geography), CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), :radius) ";
+
+    @Query(value = NEARBY_SELECT + NEARBY_FILTER + "ORDER BY distance ASC, i.id ASC", nativeQuery = true)
+    List<NearbyIncidentView> findIncidentsWithinRadius(@Param("latitude") double latitude,
+                                                       @Param("longitude") double longitude,
+                                                       @Param("radius") double radius,
+                                                       @Param("userId") String userId);
+
+    // Paginación por OFFSET con el total en cada fila, sin consulta COUNT aparte
+    @Query(value = NEARBY_COLUMNS + ", COUNT(*) OVER () AS \"totalCount\" " + NEARBY_FROM + NEARBY_FILTER +
+            "ORDER BY distance ASC, i.id ASC OFFSET :offset LIMIT :limit",
+            nativeQuery = true)
+    List<NearbyIncidentPageView> findIncidentsWithinRadiusPage(@Param("latitude") double latitude,
+                                                               @Param("longitude") double longitude,
+                                                               @Param("radius") double radius,
+                                                               @Param("userId") String userId,
+                                                               @Param("offset") long offset,
+                                                               @Param("limit") int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM incidents i " + NEARBY_FILTER, nativeQuery = true)
+    long countIncidentsWithinRadius(@Param("latitude") double latitude,
+                                    @Param("longitude") double longitude,
+                                    @Param("radius") double radius);
+
+    // Paginación por cursor: primera página con afterDistance = -1 y afterId = ''
+    @Query(value = NEARBY_SELECT + NEARBY_FILTER +
+            "AND (ST_DistanceSphere(i.location, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)) > :afterDistance " +
+            "OR (ST_DistanceSphere(i.location, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)) = :afterDistance AND i.id > :afterId)) " +
+            "ORDER BY distance ASC, i.id ASC LIMIT :limit",
+            nativeQuery = true)
+    List<NearbyIncidentView> findIncidentsWithinRadiusAfter(@Param("latitude") double latitude,
+                                                            @Param("longitude") double longitude,
+                                                            @Param("radius") double radius,
+                                                            @Param("userId") String userId,
+                                                            @Param("afterDistance") double afterDistance,
+                                                            @Param("afterId") String afterId,
+                                                            @Param("limit") int limit);
+
+    @Query(value = "SELECT DISTINCT i FROM Incident i JOIN FETCH i.reporter LEFT JOIN FETCH i.imageUrls WHERE i.status = 'ACTIVE'")
+    List<Incident> findActiveWithReporter();
 
-    List<Incident> findByStatusOrderByCreatedAtDesc(IncidentStatus status);
+    // Cualquier estado: los que dejaron de estar ACTIVE se retiran del índice en memoria
+    @Query(value = "SELECT DISTINCT i FROM Incident i JOIN FETCH i.reporter LEFT JOIN FETCH i.imageUrls WHERE i.updatedAt > :since")
+    List<Incident> findUpdatedSinceWithReporter(@Param("since") LocalDateTime since);
+
+    @Query(value = "UPDATE incidents SET status = 'EXPIRED', updated_at = :now " +
+            "WHERE id IN (SELECT id FROM incidents WHERE status = 'ACTIVE' AND expires_at < :now " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id",
+            nativeQuery = true)
+    List<String> expireActiveIncidents(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    List<Incident> findByReporterAndStatusOrderByCreatedAtDesc(User reporter, IncidentStatus status);
 
     @Query(value = "SELECT i FROM Incident i WHERE i.status = 'ACTIVE' ORDER BY i.createdAt DESC")
     Page<Incident> findActiveIncidents(Pageable pageable);
+
+    @Modifying
+    @Query(value = "UPDATE Incident i SET i.status = 'DISPUTED', i.updatedAt = :now WHERE i.id = :id AND i.status = 'ACTIVE'")
+    int markDisputed(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    // Serializa hasta el fin de la transacción los repartos de actualización de un mismo incidente
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(:id))) l", nativeQuery = true)
+    int lockUpdateFanout(@Param("id") String id);
+
+    @Modifying
+    @Query(value = "UPDATE Incident i SET i.totalNotifications = i.totalNotifications + :count WHERE i.id = :id")
+    int incrementTotalNotifications(@Param("id") String id, @Param("count") int count);
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.incidentreporter.repository;
+
+import com.example.incidentreporter.entity.NotificationOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, String> {
+
+    @Query(value = "SELECT o.id FROM NotificationOutbox o " +
+            "WHERE (o.status = 'PENDING' AND o.nextAttemptAt <= :now) " +
+            "OR (o.status = 'PROCESSING' AND o.claimedAt < :staleBefore) " +
+            "ORDER BY o.createdAt ASC")
+    List<String> findDispatchableIds(@Param("now") LocalDateTime now,
+                                     @Param("staleBefore") LocalDateTime staleBefore,
+                                     Pageable pageable);
+
+    @Modifying
+    @Query(value = "UPDATE NotificationOutbox o SET o.status = 'PROCESSING', o.claimedAt = :now " +
+            "WHERE o.id = :id " +
+            "AND ((o.status = 'PENDING' AND o.nextAttemptAt <= :now) " +
+            "OR (o.status = 'PROCESSING' AND o.claimedAt < :staleBefore))")
+    int claim(@Param("id") String id,
+              @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore);
+
+    // Solo si la entrada sigue reclamada por quien la procesa: al vencer staleAfterMs otro worker pudo retomarla
+    @Modifying
+    @Query(value = "UPDATE NotificationOutbox o SET o.status = 'DONE', o.processedAt = :now, o.lastError = NULL " +
+            "WHERE o.id = :id AND o.status = 'PROCESSING' AND o.claimedAt = :claimedAt")
+    int markDone(@Param("id") String id,
+                 @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("now") LocalDateTime now);
+}
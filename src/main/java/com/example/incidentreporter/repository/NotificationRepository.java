@@ -1,13 +1,20 @@
 package com.example.incidentreporter.repository;
 
+import com.example.incidentreporter.dto.PendingPushView;
 import com.example.incidentreporter.entity.Incident;
 import com.example.incidentreporter.entity.Notification;
 import com.example.incidentreporter.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,7 +22,57 @@ public interface NotificationRepository extends JpaRepository<Notification, Stri
 
     Page<Notification> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
 
+    @Query("SELECT n FROM Notification n WHERE n.user = :user ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findFirstPageByUser(@Param("user") User user, Limit limit);
+
+    @Query("SELECT n FROM Notification n WHERE n.user = :user " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findPageByUserAfter(@Param("user") User user,
+                                           @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") String id,
+                                           Limit limit);
+
     List<Notification> findByUserAndIncidentAndStatus(User user, Incident incident, Notification.NotificationStatus status);
 
-    List<Notification> findByStatusAndPushNotificationSent(Notification.NotificationStatus status, boolean pushNotificationSent);
+    // Reclama un lote de pushes vencidos con un lease: cuenta el intento y aplaza next_attempt_at
+    // hasta leaseUntil. Se confirma antes de enviar, así que otra ejecución solo vuelve a tomar
+    // las filas si el lease vence sin que se haya registrado el resultado
+    @Query(value = "UPDATE notifications n SET attempts = n.attempts + 1, next_attempt_at = :leaseUntil " +
+            "FROM users u " +
+            "WHERE u.id = n.user_id AND n.id IN (" +
+            "SELECT id FROM notifications " +
+            "WHERE status = 'PENDING' AND push_notification_sent = false AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED) " +
+            "RETURNING n.id AS id, n.incident_id AS \"incidentId\", u.fcm_token AS \"fcmToken\", " +
+            "u.notifications_enabled AS \"notificationsEnabled\"",
+            nativeQuery = true)
+    List<PendingPushView> claimPendingPushes(@Param("now") LocalDateTime now,
+                                             @Param("leaseUntil") LocalDateTime leaseUntil,
+                                             @Param("limit") int limit);
+
+    // Solo filas aún pendientes de push: un resultado tardío no pisa lo que registró otra ejecución
+    @Modifying
+    @Query("UPDATE Notification n SET n.pushNotificationSent = :pushSent, n.status = 'DELIVERED', n.deliveredAt = :deliveredAt " +
+            "WHERE n.id IN :ids AND n.status = 'PENDING' AND n.pushNotificationSent = false")
+    int markPushDelivered(@Param("ids") Collection<String> ids,
+                          @Param("pushSent") boolean pushSent,
+                          @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.status = 'FAILED' " +
+            "WHERE n.id IN :ids AND n.status = 'PENDING' AND n.pushNotificationSent = false AND n.attempts >= :maxAttempts")
+    int markPushFailed(@Param("ids") Collection<String> ids, @Param("maxAttempts") int maxAttempts);
+
+    // Backoff exponencial según los intentos ya hechos: base, 2x base, 4x base...
+    @Modifying
+    @Query(value = "UPDATE notifications SET next_attempt_at = " +
+            "CAST(:now AS timestamp) + make_interval(secs => :backoffSeconds * power(2, LEAST(attempts - 1, 10))) " +
+            "WHERE id IN :ids AND status = 'PENDING' AND push_notification_sent = false",
+            nativeQuery = true)
+    int reschedulePush(@Param("ids") Collection<String> ids,
+                       @Param("now") LocalDateTime now,
+                       @Param("backoffSeconds") double backoffSeconds);
 }
\ No newline at end of file
@@ -1,12 +1,14 @@
 package com.example.incidentreporter.repository;
 
+import com.example.incidentreporter.dto.FcmTokenView;
 import com.example.incidentreporter.entity.User;
 import com.example.incidentreporter.entity.UserLocation;
-import org.locationtech.jts.geom.Point;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,12 +22,50 @@ public interface UserLocationRepository extends JpaRepository<UserLocation, Stri
     @Query(value = "SELECT ul FROM UserLocation ul WHERE ul.user = :user AND ul.isActive = true")
     Optional<UserLocation> findActiveLocationByUser(@Param("user") User user);
 
-    @Query(value = "SELECT ul FROM UserLocation ul WHERE ST_DistanceSphere(ul.location, :point) <= :radius AND ul.isActive = true")
-    List<UserLocation> findUsersWithinRadius(@Param("point") Point point, @Param("radius") double radius);
+    // El primer ST_DWithin (radio constante) usa el índice GiST; el segundo aplica el radio de cada usuario
+    @Query(value = "SELECT u.id AS id, u.fcm_token AS \"fcmToken\" FROM users u " +
+            "WHERE u.notifications_enabled = true " +
+            "AND u.fcm_token IS NOT NULL AND u.fcm_token <> '' " +
+            "AND u.id <> :excludedUserId " +
+            "AND EXISTS (" +
+            "SELECT 1 FROM user_locations ul " +
+            "WHERE ul.user_id = u.id " +
+            "AND ul.is_active = true " +
+            "AND ST_DWithin(CAST(ul.location AS geography), CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), :radius) " +
+            "AND ST_DWithin(CAST(ul.location AS geography), CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), LEAST(:radius, u.notification_radius)))",
+            nativeQuery = true)
+    List<FcmTokenView> findRecipientsWithinRadius(@Param("latitude") double latitude,
+                                                  @Param("longitude") double longitude,
+                                                  @Param("radius") double radius,
+                                                  @Param("excludedUserId") String excludedUserId);
 
-    @Query(value = "SELECT DISTINCT ul.user FROM UserLocation ul WHERE ST_DistanceSphere(ul.location, :point) <= :radius AND ul.isActive = true")
-    List<User> findDistinctUsersWithinRadius(@Param("point") Point point, @Param("radius") double radius);
+    // Igual que findRecipientsWithinRadius, descartando con anti-joins a quienes ya confirmaron o negaron
+    // y a quienes ya recibieron una actualización de este incidente
+    @Query(value = "SELECT u.id AS id, u.fcm_token AS \"fcmToken\" FROM users u " +
+            "WHERE u.notifications_enabled = true " +
+            "AND u.fcm_token IS NOT NULL AND u.fcm_token <> '' " +
+            "AND u.id <> :excludedUserId " +
+            "AND EXISTS (" +
+            "SELECT 1 FROM user_locations ul " +
+            "WHERE ul.user_id = u.id " +
+            "AND ul.is_active = true " +
+            "AND ST_DWithin(CAST(ul.location AS geography), CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), :radius) " +
+            "AND ST_DWithin(CAST(ul.location AS geography), CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), LEAST(:radius, u.notification_radius))) " +
+            "AND NOT EXISTS (" +
+            "SELECT 1 FROM incident_confirmations ic " +
+            "WHERE ic.incident_id = :incidentId AND ic.user_id = u.id) " +
+            "AND NOT EXISTS (" +
+            "SELECT 1 FROM notifications n " +
+            "WHERE n.incident_id = :incidentId AND n.user_id = u.id AND n.type = 'INCIDENT_UPDATE')",
+            nativeQuery = true)
+    List<FcmTokenView> findUpdateRecipientsWithinRadius(@Param("latitude") double latitude,
+                                                        @Param("longitude") double longitude,
+                                                        @Param("radius") double radius,
+                                                        @Param("excludedUserId") String excludedUserId,
+                                                        @Param("incidentId") String incidentId);
 
-    @Query(value = "SELECT ul FROM UserLocation ul WHERE ul.timestamp < :timestamp")
-    List<UserLocation> findLocationsOlderThan(@Param("timestamp") LocalDateTime timestamp);
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM UserLocation ul WHERE ul.timestamp < :timestamp")
+    int deleteLocationsOlderThan(@Param("timestamp") LocalDateTime timestamp);
 }
\ No newline at end of file
@@ -1,14 +1,56 @@
 package com.example.incidentreporter.repository;
 
+import com.example.incidentreporter.dto.FcmTokenView;
 import com.example.incidentreporter.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByAuth0Id(String auth0Id);
     Optional<User> findByEmail(String email);
-    Optional<User> findByFcmToken(String fcmToken);
-}
\ No newline at end of file
+
+    @Query(value = "SELECT u.id AS id, u.fcmToken AS fcmToken FROM User u " +
+            "WHERE u.fcmToken IS NOT NULL AND u.fcmToken <> '' AND u.id > :afterId " +
+            "ORDER BY u.id ASC")
+    List<FcmTokenView> findFcmTokensAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE User u SET u.fcmToken = NULL, u.updatedAt = CURRENT_TIMESTAMP WHERE u.fcmToken IN :tokens")
+    int clearFcmTokens(@Param("tokens") Collection<String> tokens);
+
+    @Modifying
+    @Query(value = "UPDATE User u SET u.totalIncidentsReported = u.totalIncidentsReported + 1 WHERE u.id = :id")
+    int incrementTotalIncidentsReported(@Param("id") String id);
+
+    @Modifying
+    @Query(value = "UPDATE User u SET u.totalConfirmations = u.totalConfirmations + :delta WHERE u.id = :id")
+    int incrementTotalConfirmations(@Param("id") String id, @Param("delta") int delta);
+
+    // La puntuación se recalcula desde los contadores (valores previos a este UPDATE más el delta),
+    // así que el acotado a 0-100 no se acumula y un cambio de voto se deshace exactamente
+    @Modifying
+    @Query(value = "UPDATE User u SET " +
+            "u.confirmationsReceived = u.confirmationsReceived + :confirmationDelta, " +
+            "u.denialsReceived = u.denialsReceived + :denialDelta, " +
+            "u.verificationScore = greatest(0.0, least(100.0, :baseScore " +
+            "+ (u.confirmationsReceived + :confirmationDelta) * :perConfirmation " +
+            "+ (u.denialsReceived + :denialDelta) * :perDenial)) " +
+            "WHERE u.id = :id")
+    int applyReceivedVotes(@Param("id") String id,
+                           @Param("confirmationDelta") int confirmationDelta,
+                           @Param("denialDelta") int denialDelta,
+                           @Param("baseScore") double baseScore,
+                           @Param("perConfirmation") double perConfirmation,
+                           @Param("perDenial") double perDenial);
+}
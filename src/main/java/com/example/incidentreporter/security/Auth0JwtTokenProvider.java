@@ -1,8 +1,16 @@
 package com.example.incidentreporter.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -10,94 +18,135 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.security.interfaces.RSAPublicKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
-import java.security.KeyFactory;
-import java.security.spec.X509EncodedKeySpec;
 
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class Auth0JwtTokenProvider {
 
+    private final MeterRegistry meterRegistry;
+    private final JwksKeyCache jwksKeyCache;
+
     @Value("${auth0.domain}")
     private String auth0Domain;
 
     @Value("${auth0.audience}")
     private String auth0Audience;
 
+    @Value("${auth0.verify-signature:true}")
+    private boolean verifySignature;
+
+    @Value("${auth0.token-cache.maximum-size:10000}")
+    private long tokenCacheMaximumSize;
+
+    // Tokens ya validados, por hash SHA-256 del token, hasta su expiración
+    private Cache<String, VerifiedClaims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheMaximumSize)
+                .expireAfter(new Expiry<String, VerifiedClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedClaims claims, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), claims.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "auth.verified-tokens");
+    }
+
     /**
-     * Valida token JWT de Auth0
+     * Valida token JWT de Auth0 (claims y firma) y devuelve sus claims, o null si no es válido.
+     * El token se decodifica una sola vez; los tokens válidos se cachean hasta su expiración.
+     */
+    public VerifiedClaims verify(String token) {
+        String key = hash(token);
+        VerifiedClaims cached = verifiedTokens.getIfPresent(key);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached;
+        }
+
+        VerifiedClaims claims = decodeAndValidate(token);
+        if (claims != null) {
+            verifiedTokens.put(key, claims);
+        }
+        return claims;
+    }
+
+    /**
+     * Crea el objeto Authentication para Spring Security
      */
-    public boolean validateToken(String token) {
+    public Authentication getAuthentication(VerifiedClaims claims) {
+        // Usar email como username si está disponible, sino usar userId
+        String username = claims.email() != null ? claims.email() : claims.subject();
+
+        UserDetails userDetails = new UserPrincipal(username, claims.subject());
+        return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
+    }
+
+    private VerifiedClaims decodeAndValidate(String token) {
         try {
             DecodedJWT jwt = JWT.decode(token);
 
             // Verificar audience
-            if (!jwt.getAudience().contains(auth0Audience)) {
-                return false;
+            if (jwt.getAudience() == null || !jwt.getAudience().contains(auth0Audience)) {
+                return null;
             }
 
             // Verificar issuer
             String expectedIssuer = "https://" + auth0Domain + "/";
             if (!expectedIssuer.equals(jwt.getIssuer())) {
-                return false;
+                return null;
             }
 
             // Verificar expiración
-            if (jwt.getExpiresAt().before(new java.util.Date())) {
-                return false;
+            if (jwt.getExpiresAtAsInstant() == null || !jwt.getExpiresAtAsInstant().isAfter(Instant.now())) {
+                return null;
             }
 
-            // Para producción, aquí verificarías la firma con las claves públicas de Auth0
-            // Por simplicidad en desarrollo, validamos solo la estructura y claims básicos
-            return true;
+            // Verificar firma con la clave pública de Auth0 indicada en el kid
+            if (verifySignature) {
+                JWTVerifier verifier = jwksKeyCache.verifierFor(jwt.getKeyId());
+                if (verifier == null) {
+                    log.debug("No JWKS key found for kid {}", jwt.getKeyId());
+                    return null;
+                }
+                verifier.verify(jwt);
+            }
 
-        } catch (JWTVerificationException e) {
-            return false;
-        } catch (Exception e) {
-            return false;
-        }
-    }
+            return new VerifiedClaims(jwt.getSubject(), jwt.getClaim("email").asString(), jwt.getExpiresAtAsInstant());
 
-    /**
-     * Extrae el subject (user ID) del token
-     */
-    public String getUserIdFromToken(String token) {
-        try {
-            DecodedJWT jwt = JWT.decode(token);
-            return jwt.getSubject();
+        } catch (JWTVerificationException e) {
+            return null;
         } catch (Exception e) {
             return null;
         }
     }
 
-    /**
-     * Extrae el email del token (si está presente)
-     */
-    public String getEmailFromToken(String token) {
+    private static String hash(String token) {
         try {
-            DecodedJWT jwt = JWT.decode(token);
-            return jwt.getClaim("email").asString();
-        } catch (Exception e) {
-            return null;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
-
-    /**
-     * Crea el objeto Authentication para Spring Security
-     */
-    public Authentication getAuthentication(String token) {
-        String userId = getUserIdFromToken(token);
-        String email = getEmailFromToken(token);
-
-        // Usar email como username si está disponible, sino usar userId
-        String username = email != null ? email : userId;
-
-        UserDetails userDetails = new UserPrincipal(username, userId);
-        return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package com.example.incidentreporter.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.incidentreporter.config.SchedulingConfig;
+import com.example.incidentreporter.service.ScheduledJobMonitor;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caché local de las claves públicas de Auth0 (JWKS), indexadas por kid.
+ * Guarda un JWTVerifier por clave para no reconstruirlo en cada petición.
+ * Se refresca en segundo plano; un kid desconocido provoca una recarga inmediata
+ * (una sola a la vez, compartida por quien la pida mientras dura, y como mucho una cada
+ * minRefreshIntervalMs). La descarga nunca se hace con el cerrojo tomado.
+ * La URI puede ser http(s) o file:, lo que permite probar sin red con un JWKS local.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JwksKeyCache {
+
+    private static final int TIMEOUT_MS = 5000;
+
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobMonitor jobMonitor;
+
+    @Value("${auth0.jwks-uri}")
+    private String jwksUri;
+
+    @Value("${auth0.jwks.refresh-interval-ms:600000}")
+    private long refreshIntervalMs;
+
+    @Value("${auth0.jwks.min-refresh-interval-ms:30000}")
+    private long minRefreshIntervalMs;
+
+    private final Object refreshLock = new Object();
+    private volatile Map<String, JWTVerifier> verifiers = Map.of();
+    private volatile long lastRefreshAt;
+    // Recarga en curso, si la hay; protegido por refreshLock
+    private CompletableFuture<Void> refreshing;
+
+    private Counter refreshCounter;
+    private Counter refreshFailureCounter;
+
+    @PostConstruct
+    public void init() {
+        refreshCounter = meterRegistry.counter("auth.jwks.refreshes");
+        refreshFailureCounter = meterRegistry.counter("auth.jwks.refresh.failures");
+        meterRegistry.gauge("auth.jwks.keys", this, cache -> cache.verifiers.size());
+    }
+
+    /**
+     * Devuelve el verificador para el kid indicado, o null si la clave no existe
+     */
+    public JWTVerifier verifierFor(String kid) {
+        if (kid == null) {
+            return null;
+        }
+        JWTVerifier verifier = verifiers.get(kid);
+        if (verifier != null) {
+            return verifier;
+        }
+        refresh(false);
+        return verifiers.get(kid);
+    }
+
+    /**
+     * Recarga periódica del JWKS (rotación de claves)
+     */
+    @Scheduled(fixedDelayString = "${auth0.jwks.refresh-interval-ms:600000}",
+            scheduler = SchedulingConfig.JWKS_REFRESH_SCHEDULER)
+    public void scheduledRefresh() {
+        jobMonitor.run("auth.jwks.refresh", refreshIntervalMs, () -> {
+            refresh(true);
+            return verifiers.size();
+        });
+    }
+
+    /**
+     * Recarga single-flight: si ya hay una en curso se espera a esa en lugar de lanzar otra.
+     * El cerrojo solo protege esa decisión y la publicación de las claves; la descarga se hace
+     * fuera de él, así una recarga lenta no bloquea a quien solo consulta el estado.
+     */
+    private void refresh(boolean force) {
+        CompletableFuture<Void> inFlight;
+        synchronized (refreshLock) {
+            if (refreshing != null) {
+                inFlight = refreshing;
+            } else if (!force && System.currentTimeMillis() - lastRefreshAt < minRefreshIntervalMs) {
+                return;
+            } else {
+                lastRefreshAt = System.currentTimeMillis();
+                refreshing = new CompletableFuture<>();
+                inFlight = null;
+            }
+        }
+        if (inFlight != null) {
+            inFlight.join();
+            return;
+        }
+
+        try {
+            Map<String, JWTVerifier> loaded = loadVerifiers();
+            synchronized (refreshLock) {
+                verifiers = loaded;
+            }
+            refreshCounter.increment();
+            log.debug("Loaded {} JWKS signing keys", loaded.size());
+        } catch (Exception e) {
+            // Si la recarga falla se conservan las claves anteriores
+            refreshFailureCounter.increment();
+            log.error("Error loading JWKS from {}: {}", jwksUri, e.getMessage());
+        } finally {
+            CompletableFuture<Void> done;
+            synchronized (refreshLock) {
+                done = refreshing;
+                refreshing = null;
+            }
+            done.complete(null);
+        }
+    }
+
+    private Map<String, JWTVerifier> loadVerifiers() throws Exception {
+        Map<String, JWTVerifier> loaded = new HashMap<>();
+        for (JWK jwk : load().getKeys()) {
+            if (jwk instanceof RSAKey rsaKey && jwk.getKeyID() != null
+                    && (jwk.getKeyUse() == null || KeyUse.SIGNATURE.equals(jwk.getKeyUse()))) {
+                loaded.put(jwk.getKeyID(), JWT.require(Algorithm.RSA256(rsaKey.toRSAPublicKey(), null)).build());
+            }
+        }
+        return Map.copyOf(loaded);
+    }
+
+    private JWKSet load() throws Exception {
+        URLConnection connection = URI.create(jwksUri).toURL().openConnection();
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        try (InputStream in = connection.getInputStream()) {
+            return JWKSet.load(in);
+        }
+    }
+}
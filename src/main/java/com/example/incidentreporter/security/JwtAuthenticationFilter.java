@@ -1,5 +1,6 @@
 package com.example.incidentreporter.security;
 
+import com.example.incidentreporter.service.UserIdentityCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,6 +21,7 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final Auth0JwtTokenProvider auth0TokenProvider;
+    private final UserIdentityCache userIdentityCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -28,8 +30,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && auth0TokenProvider.validateToken(jwt)) {
-                Authentication authentication = auth0TokenProvider.getAuthentication(jwt);
+            VerifiedClaims claims = StringUtils.hasText(jwt) ? auth0TokenProvider.verify(jwt) : null;
+
+            if (claims != null) {
+                Authentication authentication = auth0TokenProvider.getAuthentication(claims);
+                // Resolver una sola vez el usuario interno para el resto de la petición
+                if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+                    userIdentityCache.find(principal.getUsername())
+                            .ifPresent(identity -> principal.setUserId(identity.id()));
+                }
                 SecurityContextHolder.getContext().setAuthentication(authentication);
                 log.debug("Successfully authenticated user with Auth0 token");
             }
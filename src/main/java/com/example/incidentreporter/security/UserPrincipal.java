@@ -15,6 +15,7 @@ public class UserPrincipal implements UserDetails {
 
     private String username; // Email o identificador del usuario
     private String auth0UserId; // ID único de Auth0 (sub claim)
+    private String userId; // ID interno del usuario, null si aún no está registrado
 
     // Constructor para mantener compatibilidad
     public UserPrincipal(String username) {
@@ -22,6 +23,11 @@ public class UserPrincipal implements UserDetails {
         this.auth0UserId = username;
     }
 
+    public UserPrincipal(String username, String auth0UserId) {
+        this.username = username;
+        this.auth0UserId = auth0UserId;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
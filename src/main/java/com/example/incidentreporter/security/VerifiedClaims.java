@@ -0,0 +1,13 @@
+package com.example.incidentreporter.security;
+
+import java.time.Instant;
+
+/**
+ * Claims de un token de Auth0 ya validado (audience, issuer y expiración)
+ *
+ * @param subject   ID único de Auth0 (sub claim)
+ * @param email     email del token, null si no está presente
+ * @param expiresAt instante de expiración del token
+ */
+public record VerifiedClaims(String subject, String email, Instant expiresAt) {
+}
@@ -0,0 +1,62 @@
+package com.example.incidentreporter.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Aplica una tarea asíncrona a cada elemento con un máximo de tareas en vuelo: cada carril
+ * lanza el siguiente elemento pendiente en cuanto termina el suyo, sin bloquear hilos.
+ * Las tareas deben recoger sus propios errores; una tarea que falla deja null en su resultado.
+ */
+final class AsyncLanes {
+
+    private AsyncLanes() {
+    }
+
+    /**
+     * @return resultados en el orden de items
+     */
+    static <T, R> CompletableFuture<List<R>> map(List<T> items, int maxInFlight,
+                                                  Function<T, CompletableFuture<R>> task) {
+        AtomicReferenceArray<R> results = new AtomicReferenceArray<>(items.size());
+        AtomicInteger next = new AtomicInteger();
+        int lanes = Math.max(1, Math.min(maxInFlight, items.size()));
+
+        CompletableFuture<?>[] laneFutures = new CompletableFuture<?>[lanes];
+        Arrays.setAll(laneFutures, lane -> runLane(items, task, next, results));
+
+        return CompletableFuture.allOf(laneFutures).thenApply(ignored -> {
+            List<R> ordered = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                ordered.add(results.get(i));
+            }
+            return ordered;
+        });
+    }
+
+    private static <T, R> CompletableFuture<Void> runLane(List<T> items, Function<T, CompletableFuture<R>> task,
+                                                          AtomicInteger next, AtomicReferenceArray<R> results) {
+        int index = next.getAndIncrement();
+        if (index >= items.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<R> future;
+        try {
+            future = task.apply(items.get(index));
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future
+                .handle((result, error) -> {
+                    results.set(index, result);
+                    return null;
+                })
+                .thenCompose(ignored -> runLane(items, task, next, results));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.incidentreporter.service;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Semáforo no bloqueante: acquire devuelve un future que se completa cuando hay permiso,
+ * en orden de llegada, o falla con TimeoutException si no lo obtiene a tiempo.
+ * Quien pide el permiso nunca bloquea su hilo; release entrega el permiso al siguiente en espera.
+ */
+final class AsyncPermits {
+
+    private final int permits;
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int available;
+
+    AsyncPermits(int permits) {
+        this.permits = permits;
+        this.available = permits;
+    }
+
+    /**
+     * @param timeoutMs espera máxima; con 0 o menos falla de inmediato si no hay permisos libres
+     */
+    CompletableFuture<Void> acquire(long timeoutMs) {
+        CompletableFuture<Void> waiter;
+        synchronized (this) {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            if (timeoutMs <= 0) {
+                return CompletableFuture.failedFuture(new TimeoutException("No permits available"));
+            }
+            waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+        }
+        // Si vence antes de recibir el permiso sale de la cola; si lo recibió, el timeout no tiene efecto
+        waiter.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((ignored, error) -> {
+            if (error != null) {
+                remove(waiter);
+            }
+        });
+        return waiter;
+    }
+
+    void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+            }
+            // complete() falla si el timeout ganó la carrera: el permiso pasa al siguiente
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    synchronized int inUse() {
+        return permits - available;
+    }
+
+    private synchronized void remove(CompletableFuture<Void> waiter) {
+        waiters.remove(waiter);
+    }
+}
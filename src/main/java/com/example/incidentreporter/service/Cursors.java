@@ -0,0 +1,44 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Codifica y decodifica los cursores opacos de la paginación por cursor
+ */
+final class Cursors {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "|";
+
+    private Cursors() {
+    }
+
+    static String encode(String... parts) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join(SEPARATOR, parts).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decode(String cursor, int expectedParts) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR, -1);
+            if (parts.length != expectedParts) {
+                throw new InvalidCursorException("Cursor inválido");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Cursor inválido");
+        }
+    }
+
+    /**
+     * Limita el tamaño de página pedido al rango permitido
+     */
+    static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+}
@@ -1,15 +1,30 @@
 package com.example.incidentreporter.service;
 
+import com.example.incidentreporter.dto.FcmTokenView;
 import com.example.incidentreporter.entity.Incident;
-import com.example.incidentreporter.entity.User;
+import com.example.incidentreporter.exception.PushUnavailableException;
 import com.example.incidentreporter.repository.UserRepository;
 import com.google.firebase.messaging.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -18,13 +33,35 @@ public class FCMService {
 
     // SOLUCIÓN: Inyectar directamente el repository en lugar del service
     private final UserRepository userRepository;
+    private final FcmPushClient pushClient;
+    private final FcmMulticastSender multicastSender;
+    private final UserPositionGrid userPositionGrid;
+    private final MeterRegistry meterRegistry;
+
+    // Tamaño máximo de la lista IN al limpiar tokens
+    private static final int TOKEN_CLEANUP_BATCH_SIZE = 1000;
+
+    private Counter invalidTokensCounter;
+    private Counter clearedTokensCounter;
+
+    @Value("${fcm.token-cleanup.concurrency:4}")
+    private int validationConcurrency;
+
+    @Value("${fcm.token-cleanup.pages-per-second:5}")
+    private int validationPagesPerSecond;
+
+    @PostConstruct
+    public void init() {
+        invalidTokensCounter = meterRegistry.counter("fcm.tokens.invalid");
+        clearedTokensCounter = meterRegistry.counter("fcm.tokens.cleared");
+    }
 
     /**
      * Envía una notificación FCM a un usuario específico
      */
     public String sendIncidentNotification(String fcmToken, Incident incident, double userLatitude, double userLongitude) {
         try {
-            double distance = calculateDistance(
+            double distance = GeoUtils.distance(
                     userLatitude, userLongitude,
                     incident.getLatitude(), incident.getLongitude()
             );
@@ -56,7 +93,7 @@ public class FCMService {
                     )
                     .build();
 
-            String response = FirebaseMessaging.getInstance().send(message);
+            String response = FcmPushClient.await(pushClient.send(message, false));
             log.info("Successfully sent FCM message: {}", response);
             return response;
         } catch (FirebaseMessagingException e) {
@@ -68,41 +105,51 @@ public class FCMService {
     /**
      * Envío masivo de notificaciones a múltiples usuarios
      */
-    public BatchResponse sendToMultipleUsers(List<String> tokens, Incident incident) {
-        if (tokens.isEmpty()) {
-            log.warn("No FCM tokens provided for notification");
-            return null;
-        }
-
+    public MulticastBatchResponse sendToMultipleUsers(List<String> tokens, Incident incident) {
+        MulticastBatchResponse response;
         try {
-            MulticastMessage multicastMessage = MulticastMessage.builder()
-                    .addAllTokens(tokens)
-                    .setNotification(
-                            com.google.firebase.messaging.Notification.builder()
-                                    .setTitle("⚠️ Incidente en tu área")
-                                    .setBody(incident.getTitle())
-                                    .build()
-                    )
-                    .putData("incidentId", incident.getId())
-                    .putData("action", "view_incident")
-                    .setAndroidConfig(
-                            AndroidConfig.builder()
-                                    .setPriority(AndroidConfig.Priority.HIGH)
-                                    .build()
-                    )
-                    .build();
+            response = sendToMultipleUsersAsync(tokens, incident).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
 
-            BatchResponse response = FirebaseMessaging.getInstance().sendMulticast(multicastMessage);
-            log.info("Successfully sent {} messages", response.getSuccessCount());
+        // Procesar errores para tokens inválidos de todos los lotes en una sola pasada
+        clearInvalidTokens(findInvalidTokens(response));
 
-            // Procesar errores para tokens inválidos
-            processFailedTokens(tokens, response);
+        return response;
+    }
 
-            return response;
-        } catch (FirebaseMessagingException e) {
-            log.error("Error sending FCM multicast message", e);
-            throw new RuntimeException("Error sending multicast notification: " + e.getMessage(), e);
+    /**
+     * Envío masivo sin bloquear al llamador. No limpia los tokens inválidos: el llamador
+     * los obtiene con findInvalidTokens y los borra con clearInvalidTokens, fuera de los hilos de FCM.
+     */
+    public CompletableFuture<MulticastBatchResponse> sendToMultipleUsersAsync(List<String> tokens, Incident incident) {
+        if (tokens.isEmpty()) {
+            log.warn("No FCM tokens provided for notification");
+            return CompletableFuture.completedFuture(new MulticastBatchResponse(List.of(), List.of(), List.of()));
         }
+
+        return multicastSender.sendAsync(tokens, chunk -> MulticastMessage.builder()
+                        .addAllTokens(chunk)
+                        .setNotification(
+                                com.google.firebase.messaging.Notification.builder()
+                                        .setTitle("⚠️ Incidente en tu área")
+                                        .setBody(incident.getTitle())
+                                        .build()
+                        )
+                        .putData("incidentId", incident.getId())
+                        .putData("action", "view_incident")
+                        .setAndroidConfig(
+                                AndroidConfig.builder()
+                                        .setPriority(AndroidConfig.Priority.HIGH)
+                                        .build()
+                        )
+                        .build())
+                .whenComplete((response, error) -> {
+                    if (response != null) {
+                        log.info("Successfully sent {} messages", response.getSuccessCount());
+                    }
+                });
     }
 
     /**
@@ -110,17 +157,12 @@ public class FCMService {
      */
     public boolean validateFCMToken(String token) {
         try {
-            // Crear un mensaje de prueba con TTL de 0 para no enviarlo realmente
-            Message message = Message.builder()
-                    .setToken(token)
-                    .setAndroidConfig(AndroidConfig.builder()
-                            .setDirectBootOk(true)
-                            .setPriority(AndroidConfig.Priority.HIGH)
-                            .setTtl(0) // TTL de 0 para no enviar realmente
-                            .build())
-                    .build();
-
-            FirebaseMessaging.getInstance().send(message);
+            // Envío en modo dry-run: FCM valida el token sin entregar el mensaje
+            FcmPushClient.await(pushClient.send(buildValidationMessage(token), true));
+            return true;
+        } catch (PushUnavailableException e) {
+            // Sin respuesta de FCM no se puede afirmar que el token sea inválido
+            log.warn("FCM validation unavailable (token may still be valid): {}", e.getMessage());
             return true;
         } catch (FirebaseMessagingException e) {
             if (e.getMessagingErrorCode() == MessagingErrorCode.INVALID_ARGUMENT ||
@@ -135,69 +177,142 @@ public class FCMService {
     }
 
     /**
-     * Limpia tokens inválidos - Método público para usar desde UserService
+     * Limpia tokens inválidos - Método público para usar desde UserService.
+     * Recorre los tokens por páginas (keyset sobre id) y valida cada página con un
+     * único envío dry-run, con concurrencia y ritmo acotados.
      */
     public void cleanupInvalidTokens() {
-        List<User> users = findUsersWithFCMToken();
-        for (User user : users) {
-            if (user.getFcmToken() != null && !validateFCMToken(user.getFcmToken())) {
-                log.info("Cleaning up invalid FCM token for user: {}", user.getEmail());
-                user.setFcmToken(null);
-                userRepository.save(user);
+        int pageSize = FcmMulticastSender.MAX_TOKENS_PER_MULTICAST;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, validationPagesPerSecond);
+        Semaphore inFlight = new Semaphore(validationConcurrency);
+        ExecutorService executor = Executors.newFixedThreadPool(validationConcurrency,
+                new CustomizableThreadFactory("fcm-token-cleanup-"));
+
+        String afterId = "";
+        long nextDispatch = System.nanoTime();
+        int validated = 0;
+        try {
+            while (true) {
+                List<FcmTokenView> page = userRepository.findFcmTokensAfter(afterId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+                List<String> tokens = page.stream().map(FcmTokenView::getFcmToken).toList();
+
+                // Limitar el ritmo de páginas por segundo
+                long wait = nextDispatch - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                nextDispatch = Math.max(System.nanoTime(), nextDispatch) + intervalNanos;
+
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        validateTokenPage(tokens);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+                validated += tokens.size();
+
+                if (page.size() < pageSize) {
+                    break;
+                }
             }
+            // Esperar a que terminen las páginas en curso
+            inFlight.acquire(validationConcurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("FCM token cleanup interrupted after {} tokens", validated);
+        } finally {
+            executor.shutdown();
         }
+        log.info("FCM token cleanup validated {} tokens", validated);
     }
 
     /**
-     * Encuentra usuarios con token FCM válido
+     * Valida una página de tokens con un único envío dry-run y limpia los inválidos
      */
-    public List<User> findUsersWithFCMToken() {
-        return userRepository.findAll().stream()
-                .filter(user -> user.getFcmToken() != null && !user.getFcmToken().trim().isEmpty())
-                .toList();
+    private void validateTokenPage(List<String> tokens) {
+        try {
+            List<Message> messages = tokens.stream().map(this::buildValidationMessage).toList();
+            BatchResponse response = FcmPushClient.await(pushClient.sendEach(messages, true));
+
+            List<SendResponse> responses = response.getResponses();
+            Set<String> invalidTokens = new LinkedHashSet<>();
+            for (int i = 0; i < responses.size(); i++) {
+                if (!responses.get(i).isSuccessful() && isInvalidTokenError(responses.get(i).getException())) {
+                    invalidTokens.add(tokens.get(i));
+                }
+            }
+            clearInvalidTokens(invalidTokens);
+        } catch (Exception e) {
+            // Ante errores del servicio no se borra ningún token de la página
+            log.error("Error validating FCM token page of {} tokens", tokens.size(), e);
+        }
     }
 
-    /**
-     * Encuentra usuario por token FCM
-     */
-    public Optional<User> findByFcmToken(String fcmToken) {
-        return userRepository.findByFcmToken(fcmToken);
+    private Message buildValidationMessage(String token) {
+        return Message.builder()
+                .setToken(token)
+                .setAndroidConfig(AndroidConfig.builder()
+                        .setDirectBootOk(true)
+                        .setPriority(AndroidConfig.Priority.HIGH)
+                        .setTtl(0)
+                        .build())
+                .build();
+    }
+
+    private boolean isInvalidTokenError(FirebaseMessagingException ex) {
+        return ex != null && (ex.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED ||
+                ex.getMessagingErrorCode() == MessagingErrorCode.INVALID_ARGUMENT);
     }
 
     /**
-     * Procesa tokens fallidos para limpiarlos o reintentar
+     * Tokens que FCM rechazó por no registrados o inválidos, para borrarlos
      */
-    private void processFailedTokens(List<String> tokens, BatchResponse response) {
+    public Set<String> findInvalidTokens(MulticastBatchResponse response) {
+        List<String> tokens = response.getTokens();
         List<SendResponse> responses = response.getResponses();
+        Set<String> invalidTokens = new LinkedHashSet<>();
         for (int i = 0; i < responses.size(); i++) {
             if (!responses.get(i).isSuccessful()) {
-                FirebaseMessagingException ex = responses.get(i).getException();
-                if (ex.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED ||
-                        ex.getMessagingErrorCode() == MessagingErrorCode.INVALID_ARGUMENT) {
-                    String invalidToken = tokens.get(i);
-                    findByFcmToken(invalidToken).ifPresent(user -> {
-                        user.setFcmToken(null);
-                        userRepository.save(user);
-                        log.info("Removed invalid FCM token for user: {}", user.getEmail());
-                    });
+                if (isInvalidTokenError(responses.get(i).getException())) {
+                    invalidTokens.add(tokens.get(i));
                 }
             }
         }
+        return invalidTokens;
     }
 
     /**
-     * Calcula la distancia entre dos puntos usando la fórmula de Haversine
+     * Elimina en bloque los tokens inválidos de los usuarios que los tengan
      */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radio de la Tierra en km
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c * 1000; // convertir a metros
-
-        return distance;
+    public void clearInvalidTokens(Set<String> invalidTokens) {
+        if (invalidTokens.isEmpty()) {
+            return;
+        }
+        invalidTokensCounter.increment(invalidTokens.size());
+
+        List<String> batch = new ArrayList<>(TOKEN_CLEANUP_BATCH_SIZE);
+        int cleared = 0;
+        for (String token : invalidTokens) {
+            batch.add(token);
+            if (batch.size() == TOKEN_CLEANUP_BATCH_SIZE) {
+                cleared += userRepository.clearFcmTokens(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            cleared += userRepository.clearFcmTokens(batch);
+        }
+
+        // Evitar que la malla de posiciones siga resolviendo los tokens borrados
+        TransactionUtils.afterCommit(() -> userPositionGrid.clearTokens(invalidTokens));
+
+        clearedTokensCounter.increment(cleared);
+        log.info("Removed {} invalid FCM tokens ({} users updated)", invalidTokens.size(), cleared);
     }
 }
\ No newline at end of file
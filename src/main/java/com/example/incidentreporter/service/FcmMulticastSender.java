@@ -0,0 +1,102 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.config.FcmClientProperties;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Envía multicast FCM partiendo la lista de tokens en lotes de como máximo 500
+ * (límite de FCM). Cada envío mantiene como máximo chunksPerMulticast lotes en vuelo
+ * y lanza el siguiente lote en cuanto termina uno, así un envío grande no agota los
+ * permisos del cliente asíncrono (que aplica deadline y reintentos) ni espera por ellos
+ * hasta el rechazo; la espera por permiso solo actúa entre envíos concurrentes.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FcmMulticastSender {
+
+    // Máximo de tokens por MulticastMessage aceptado por FCM
+    public static final int MAX_TOKENS_PER_MULTICAST = 500;
+
+    private final FcmPushClient pushClient;
+    private final FcmClientProperties properties;
+
+    /**
+     * Envía el mensaje a todos los tokens y combina las respuestas de cada lote.
+     * Lanza excepción solo si ningún lote pudo enviarse.
+     */
+    public MulticastBatchResponse send(List<String> tokens, Function<List<String>, MulticastMessage> messageFactory) {
+        try {
+            return sendAsync(tokens, messageFactory).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Como send, sin bloquear: el future falla solo si ningún lote pudo enviarse
+     */
+    public CompletableFuture<MulticastBatchResponse> sendAsync(List<String> tokens,
+                                                               Function<List<String>, MulticastMessage> messageFactory) {
+        // Cada carril envía lotes de uno en uno, tomando el siguiente pendiente al terminar el anterior
+        return AsyncLanes.map(partition(tokens), properties.chunksPerMulticast(),
+                        chunk -> pushClient.sendMulticast(chunk, messageFactory)
+                                .handle((response, error) -> new ChunkResult(chunk, response, error)))
+                .thenApply(results -> combine(tokens, results));
+    }
+
+    private static MulticastBatchResponse combine(List<String> tokens, List<ChunkResult> results) {
+        List<String> sentTokens = new ArrayList<>(tokens.size());
+        List<SendResponse> responses = new ArrayList<>(tokens.size());
+        List<Integer> positions = new ArrayList<>(tokens.size());
+        List<String> unsentTokens = new ArrayList<>();
+        Throwable lastError = null;
+
+        // Los lotes son tramos consecutivos de tokens: la posición es el inicio del lote más el índice
+        int chunkStart = 0;
+        for (ChunkResult result : results) {
+            if (result.response() != null) {
+                sentTokens.addAll(result.response().getTokens());
+                responses.addAll(result.response().getResponses());
+                for (int i = 0; i < result.response().getResponses().size(); i++) {
+                    positions.add(chunkStart + i);
+                }
+            } else {
+                log.error("Error sending FCM multicast chunk of {} tokens", result.tokens().size(), result.error());
+                unsentTokens.addAll(result.tokens());
+                lastError = result.error();
+            }
+            chunkStart += result.tokens().size();
+        }
+
+        if (responses.isEmpty() && lastError != null) {
+            throw new RuntimeException("Error sending multicast notification: " + lastError.getMessage(), lastError);
+        }
+        if (!unsentTokens.isEmpty()) {
+            log.error("{} of {} FCM tokens could not be sent", unsentTokens.size(), tokens.size());
+        }
+
+        return new MulticastBatchResponse(sentTokens, responses, positions, unsentTokens);
+    }
+
+    private static List<List<String>> partition(List<String> tokens) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < tokens.size(); from += MAX_TOKENS_PER_MULTICAST) {
+            chunks.add(tokens.subList(from, Math.min(from + MAX_TOKENS_PER_MULTICAST, tokens.size())));
+        }
+        return chunks;
+    }
+
+    private record ChunkResult(List<String> tokens, MulticastBatchResponse response, Throwable error) {
+    }
+}
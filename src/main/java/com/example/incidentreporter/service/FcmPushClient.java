@@ -0,0 +1,227 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.config.FcmClientProperties;
+import com.example.incidentreporter.exception.PushUnavailableException;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cliente push no bloqueante sobre PushGateway:
+ * límite de llamadas en vuelo, deadline por llamada, circuit breaker y reintentos
+ * con backoff exponencial con jitter ante UNAVAILABLE / QUOTA_EXCEEDED.
+ * En multicast solo se reintentan los tokens que fallaron con un error reintentable.
+ * Ningún método bloquea al llamante: la espera por capacidad también es asíncrona.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FcmPushClient {
+
+    private final PushGateway pushGateway;
+    private final MeterRegistry meterRegistry;
+
+    private final FcmClientProperties properties;
+
+    private AsyncPermits inFlight;
+    private PushCircuitBreaker circuitBreaker;
+
+    private Counter retriesCounter;
+    private Counter rejectedCounter;
+    private Counter timeoutsCounter;
+
+    @PostConstruct
+    public void init() {
+        inFlight = new AsyncPermits(properties.maxInFlight());
+        circuitBreaker = new PushCircuitBreaker(properties.circuit().failureThreshold(), properties.circuit().openMs());
+
+        retriesCounter = meterRegistry.counter("fcm.client.retries");
+        rejectedCounter = meterRegistry.counter("fcm.client.rejected");
+        timeoutsCounter = meterRegistry.counter("fcm.client.timeouts");
+        meterRegistry.gauge("fcm.client.in_flight", inFlight, AsyncPermits::inUse);
+        meterRegistry.gauge("fcm.client.circuit_open", circuitBreaker,
+                breaker -> breaker.state() == PushCircuitBreaker.State.CLOSED ? 0 : 1);
+    }
+
+    /**
+     * Envía un mensaje individual (o lo valida con dryRun)
+     */
+    public CompletableFuture<String> send(Message message, boolean dryRun) {
+        return execute(() -> pushGateway.sendAsync(message, dryRun), 1);
+    }
+
+    /**
+     * Envía una lista de mensajes en una sola llamada
+     */
+    public CompletableFuture<BatchResponse> sendEach(List<Message> messages, boolean dryRun) {
+        return execute(() -> pushGateway.sendEachAsync(messages, dryRun), 1);
+    }
+
+    /**
+     * Envía un multicast (máximo 500 tokens). Las respuestas quedan alineadas con tokens.
+     */
+    public CompletableFuture<MulticastBatchResponse> sendMulticast(List<String> tokens,
+                                                                   Function<List<String>, MulticastMessage> messageFactory) {
+        return sendMulticast(tokens, messageFactory, 1);
+    }
+
+    /**
+     * Espera el resultado de una llamada, propagando los errores de FCM como FirebaseMessagingException
+     */
+    public static <T> T await(CompletableFuture<T> future) throws FirebaseMessagingException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PushUnavailableException("Interrupted while waiting for FCM", e);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof FirebaseMessagingException fme) {
+                throw fme;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new PushUnavailableException("FCM call failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private CompletableFuture<MulticastBatchResponse> sendMulticast(List<String> tokens,
+                                                                    Function<List<String>, MulticastMessage> messageFactory,
+                                                                    int attempt) {
+        return execute(() -> pushGateway.sendEachForMulticastAsync(messageFactory.apply(tokens)), attempt)
+                .thenCompose(batch -> {
+                    List<SendResponse> responses = new ArrayList<>(batch.getResponses());
+                    List<Integer> retryIndexes = new ArrayList<>();
+                    for (int i = 0; i < responses.size(); i++) {
+                        if (!responses.get(i).isSuccessful() && isRetryable(responses.get(i).getException())) {
+                            retryIndexes.add(i);
+                        }
+                    }
+                    if (retryIndexes.isEmpty() || attempt >= properties.maxAttempts()) {
+                        return CompletableFuture.completedFuture(new MulticastBatchResponse(tokens, responses, List.of()));
+                    }
+
+                    List<String> retryTokens = retryIndexes.stream().map(tokens::get).toList();
+                    retriesCounter.increment(retryTokens.size());
+                    return delay(attempt)
+                            .thenCompose(ignored -> sendMulticast(retryTokens, messageFactory, attempt + 1))
+                            .handle((retried, error) -> {
+                                // Si el reintento falla entero se conservan las respuestas originales
+                                if (error == null) {
+                                    for (int i = 0; i < retryIndexes.size(); i++) {
+                                        responses.set(retryIndexes.get(i), retried.getResponses().get(i));
+                                    }
+                                }
+                                return new MulticastBatchResponse(tokens, responses, List.of());
+                            });
+                });
+    }
+
+    // La llamada se encadena a la obtención del permiso, así el hilo que envía no espera capacidad
+    private <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call, int attempt) {
+        return inFlight.acquire(properties.acquireTimeoutMs())
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        rejectedCounter.increment();
+                        return CompletableFuture.<T>failedFuture(new PushUnavailableException("Too many FCM calls in flight"));
+                    }
+                    return invoke(call, attempt);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    // Se llama con el permiso ya obtenido; lo libera al terminar la llamada
+    private <T> CompletableFuture<T> invoke(Supplier<CompletableFuture<T>> call, int attempt) {
+        if (!circuitBreaker.allowRequest()) {
+            inFlight.release();
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(new PushUnavailableException("FCM circuit breaker is open"));
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return future
+                .orTimeout(properties.deadlineMs(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    inFlight.release();
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof TimeoutException) {
+                        timeoutsCounter.increment();
+                    }
+                    if (cause != null && countsAsFailure(cause)) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onSuccess();
+                    }
+                })
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof FirebaseMessagingException fme && isRetryable(fme) && attempt < properties.maxAttempts()) {
+                        retriesCounter.increment();
+                        log.warn("FCM call failed with {}, retrying (attempt {})", fme.getMessagingErrorCode(), attempt + 1);
+                        return delay(attempt).thenCompose(ignored -> execute(call, attempt + 1));
+                    }
+                    return CompletableFuture.<T>failedFuture(cause);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    // Backoff exponencial con jitter completo: aleatorio entre 0 y base * 2^(intento - 1)
+    private CompletableFuture<Void> delay(int attempt) {
+        long maxDelay = properties.retryBackoffMs() * (1L << Math.min(attempt - 1, 10));
+        long delay = ThreadLocalRandom.current().nextLong(maxDelay + 1);
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+    }
+
+    private static boolean isRetryable(FirebaseMessagingException e) {
+        return e != null && (e.getMessagingErrorCode() == MessagingErrorCode.UNAVAILABLE
+                || e.getMessagingErrorCode() == MessagingErrorCode.QUOTA_EXCEEDED);
+    }
+
+    // Errores del servicio o de red cuentan para el breaker; los errores de un token o mensaje concreto no
+    private static boolean countsAsFailure(Throwable cause) {
+        if (cause instanceof FirebaseMessagingException fme) {
+            MessagingErrorCode code = fme.getMessagingErrorCode();
+            return code == null || code == MessagingErrorCode.UNAVAILABLE
+                    || code == MessagingErrorCode.INTERNAL || code == MessagingErrorCode.QUOTA_EXCEEDED;
+        }
+        return true;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.incidentreporter.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MulticastMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implementación de PushGateway sobre las APIs asíncronas de Firebase Cloud Messaging
+ */
+@Component
+public class FirebasePushGateway implements PushGateway {
+
+    @Override
+    public CompletableFuture<String> sendAsync(Message message, boolean dryRun) {
+        return toCompletableFuture(FirebaseMessaging.getInstance().sendAsync(message, dryRun));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendEachAsync(List<Message> messages, boolean dryRun) {
+        return toCompletableFuture(FirebaseMessaging.getInstance().sendEachAsync(messages, dryRun));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendEachForMulticastAsync(MulticastMessage message) {
+        return toCompletableFuture(FirebaseMessaging.getInstance().sendEachForMulticastAsync(message));
+    }
+
+    private static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+        }, Runnable::run);
+        // Si el futuro termina antes que la llamada (p. ej. por deadline) se cancela la llamada a FCM
+        future.whenComplete((result, error) -> {
+            if (error != null && !apiFuture.isDone()) {
+                apiFuture.cancel(true);
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.incidentreporter.service;
+
+/**
+ * Utilidades geográficas compartidas por los índices en memoria
+ */
+final class GeoUtils {
+
+    static final double EARTH_RADIUS_METERS = 6371000;
+    static final double METERS_PER_DEGREE = 111320;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Calcula la distancia entre dos puntos usando la fórmula de Haversine (en metros)
+     */
+    static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_METERS * c;
+    }
+
+    /**
+     * Número de celdas de longitud que dan la vuelta completa al globo
+     */
+    static int longitudeCells(double cellSizeDegrees) {
+        return (int) Math.round(360 / cellSizeDegrees);
+    }
+
+    /**
+     * Normaliza un índice de celda de longitud a [-cells/2, cells/2), de modo que las
+     * celdas a uno y otro lado del antimeridiano (±180°) sean la misma
+     */
+    static int wrapLongitudeCell(int lonIndex, int longitudeCells) {
+        int half = longitudeCells / 2;
+        return Math.floorMod(lonIndex + half, longitudeCells) - half;
+    }
+
+    /**
+     * Indica si una celda normalizada cae en el rango [minLon, maxLon] sin normalizar,
+     * que puede cruzar el antimeridiano
+     */
+    static boolean inLongitudeCellRange(int lonIndex, int minLon, int maxLon, int longitudeCells) {
+        int span = maxLon - minLon;
+        return span + 1 >= longitudeCells || Math.floorMod(lonIndex - minLon, longitudeCells) <= span;
+    }
+
+    /**
+     * Grados de latitud que cubren la distancia indicada
+     */
+    static double latitudeDelta(double meters) {
+        return meters / METERS_PER_DEGREE;
+    }
+
+    /**
+     * Grados de longitud que cubren la distancia indicada a una latitud dada
+     */
+    static double longitudeDelta(double meters, double latitude) {
+        double cos = Math.cos(Math.toRadians(latitude));
+        if (cos < 1e-6) {
+            return 360;
+        }
+        return Math.min(360, meters / (METERS_PER_DEGREE * cos));
+    }
+}
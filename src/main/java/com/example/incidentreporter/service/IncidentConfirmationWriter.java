@@ -0,0 +1,155 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.IncidentConfirmationRequest;
+import com.example.incidentreporter.enums.ConfirmationAction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Escritura atómica de confirmaciones y de los contadores del incidente.
+ * La confirmación es un upsert sobre la restricción única (incident_id, user_id) y los
+ * contadores se ajustan con deltas en SQL, así que confirmaciones concurrentes sobre el
+ * mismo incidente no pierden actualizaciones ni dependen de leer la entidad antes.
+ * El upsert bloquea la fila del usuario hasta el commit, así que votos simultáneos del mismo
+ * usuario ven siempre la acción anterior correcta y sus deltas no se pisan.
+ * Debe llamarse dentro de una transacción.
+ */
+@Component
+@RequiredArgsConstructor
+public class IncidentConfirmationWriter {
+
+    // Primera confirmación del usuario: una sola sentencia
+    private static final String INSERT_SQL =
+            "INSERT INTO incident_confirmations (id, incident_id, user_id, action, timestamp, user_latitude, user_longitude, " +
+            "comment, confidence, notification_delay, device_type) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (incident_id, user_id) DO NOTHING";
+
+    // Cambio de voto: bloquea la fila existente y devuelve la acción anterior
+    private static final String UPDATE_SQL =
+            "UPDATE incident_confirmations c SET action = ?, timestamp = ?, user_latitude = ?, user_longitude = ?, " +
+            "comment = ?, confidence = ?, notification_delay = ?, device_type = ? " +
+            "FROM (SELECT id, action FROM incident_confirmations WHERE incident_id = ? AND user_id = ? FOR UPDATE) previous " +
+            "WHERE c.id = previous.id " +
+            "RETURNING previous.action";
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE incidents SET confirmation_count = confirmation_count + ?, denial_count = denial_count + ?, " +
+            "last_confirmation_at = COALESCE(?, last_confirmation_at), updated_at = ? " +
+            "WHERE id = ? " +
+            "RETURNING confirmation_count, denial_count, last_confirmation_at, reporter_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Registra la acción del usuario y ajusta los contadores del incidente según su acción anterior
+     *
+     * @param confirmedAt fecha de la acción; pasa a ser la última confirmación si la acción es CONFIRMED
+     * @return deltas aplicados y contadores resultantes (null si el incidente no existe)
+     */
+    public Vote record(String incidentId, String userId, IncidentConfirmationRequest request, LocalDateTime confirmedAt) {
+        ConfirmationAction previousAction = upsert(incidentId, userId, request);
+        ConfirmationAction action = request.getAction();
+
+        int confirmationDelta = delta(previousAction, action, ConfirmationAction.CONFIRMED);
+        int denialDelta = delta(previousAction, action, ConfirmationAction.DENIED);
+        Counters counters = applyDelta(incidentId, confirmationDelta, denialDelta,
+                action == ConfirmationAction.CONFIRMED ? confirmedAt : null);
+        return new Vote(confirmationDelta, denialDelta, counters);
+    }
+
+    /**
+     * Variación de un contador al pasar de la acción anterior (o ninguna) a la nueva
+     */
+    private static int delta(ConfirmationAction previousAction, ConfirmationAction action, ConfirmationAction counted) {
+        return (action == counted ? 1 : 0) - (previousAction == counted ? 1 : 0);
+    }
+
+    /**
+     * Registra o actualiza la acción del usuario sobre el incidente
+     *
+     * @return acción anterior del usuario, o null si es su primera confirmación
+     */
+    private ConfirmationAction upsert(String incidentId, String userId, IncidentConfirmationRequest request) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int inserted = jdbcTemplate.update(INSERT_SQL, ps -> {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setString(2, incidentId);
+            ps.setString(3, userId);
+            bindFields(ps, 4, request, now);
+        });
+        if (inserted == 1) {
+            return null;
+        }
+
+        List<String> previous = jdbcTemplate.query(UPDATE_SQL, ps -> {
+            bindFields(ps, 1, request, now);
+            ps.setString(9, incidentId);
+            ps.setString(10, userId);
+        }, (rs, rowNum) -> rs.getString(1));
+
+        if (previous.isEmpty()) {
+            // La fila en conflicto desapareció entre ambas sentencias
+            throw new IllegalStateException("Confirmation for incident " + incidentId + " vanished during upsert");
+        }
+        return previous.get(0) == null ? null : ConfirmationAction.valueOf(previous.get(0));
+    }
+
+    /**
+     * Vincula las columnas de la acción (action ... device_type) a partir de la posición indicada
+     */
+    private static void bindFields(PreparedStatement ps, int from, IncidentConfirmationRequest request,
+                                   Timestamp now) throws SQLException {
+        ps.setString(from, request.getAction().name());
+        ps.setTimestamp(from + 1, now);
+        ps.setDouble(from + 2, request.getUserLatitude());
+        ps.setDouble(from + 3, request.getUserLongitude());
+        ps.setString(from + 4, request.getComment());
+        ps.setInt(from + 5, request.getConfidence() != null ? request.getConfidence() : 0);
+        ps.setLong(from + 6, request.getNotificationDelay() != null ? request.getNotificationDelay() : 0);
+        ps.setString(from + 7, request.getDeviceType());
+    }
+
+    /**
+     * Aplica los deltas a los contadores del incidente en una sola sentencia
+     *
+     * @param confirmedAt nueva fecha de última confirmación, o null para conservar la actual
+     * @return contadores tras la actualización, o null si el incidente no existe
+     */
+    private Counters applyDelta(String incidentId, int confirmationDelta, int denialDelta, LocalDateTime confirmedAt) {
+        List<Counters> rows = jdbcTemplate.query(APPLY_DELTA_SQL, ps -> {
+            ps.setInt(1, confirmationDelta);
+            ps.setInt(2, denialDelta);
+            ps.setTimestamp(3, confirmedAt != null ? Timestamp.valueOf(confirmedAt) : null);
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setString(5, incidentId);
+        }, (rs, rowNum) -> {
+            Timestamp lastConfirmationAt = rs.getTimestamp(3);
+            return new Counters(rs.getInt(1), rs.getInt(2),
+                    lastConfirmationAt != null ? lastConfirmationAt.toLocalDateTime() : null, rs.getString(4));
+        });
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Resultado de un voto: deltas aplicados a los contadores y contadores tras aplicarlos
+     */
+    public record Vote(int confirmationDelta, int denialDelta, Counters counters) {
+    }
+
+    /**
+     * Contadores del incidente después de aplicar un delta, junto con su autor
+     */
+    public record Counters(int confirmationCount, int denialCount, LocalDateTime lastConfirmationAt,
+                           String reporterId) {
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.config.SchedulingConfig;
+import com.example.incidentreporter.entity.Incident;
+import com.example.incidentreporter.entity.NotificationOutbox;
+import com.example.incidentreporter.enums.IncidentStatus;
+import com.example.incidentreporter.enums.NotificationType;
+import com.example.incidentreporter.repository.IncidentRepository;
+import com.example.incidentreporter.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reparto asíncrono de notificaciones de incidentes (patrón outbox).
+ * La petición solo guarda una fila en notification_outbox dentro de su transacción;
+ * un pool acotado de workers la reclama, y en una transacción resuelve destinatarios,
+ * crea las notificaciones y cierra la entrada. El push se envía después, fuera de
+ * cualquier transacción, y su resultado se registra por id de notificación; las
+ * notificaciones quedan reservadas al worker hasta que vence el lease, así que si
+ * cae antes de registrar el resultado el dispatcher las reintenta sin duplicar envíos.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IncidentFanoutService {
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final IncidentRepository incidentRepository;
+    private final IncidentRecipientResolver recipientResolver;
+    private final NotificationService notificationService;
+    private final FCMService fcmService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobMonitor jobMonitor;
+
+    @Value("${notifications.fanout.workers:4}")
+    private int workers;
+
+    @Value("${notifications.fanout.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${notifications.fanout.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notifications.fanout.retry-backoff-ms:5000}")
+    private long retryBackoffMs;
+
+    @Value("${notifications.fanout.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${notifications.fanout.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    @Value("${notifications.dispatch.lease-ms:120000}")
+    private long pushLeaseMs;
+
+    private ThreadPoolExecutor executor;
+    // Limita trabajos en ejecución + en cola; lo que no cabe se queda en la tabla hasta el siguiente sondeo
+    private Semaphore capacity;
+
+    private Counter enqueuedCounter;
+    private Counter processedCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+    private Counter deferredCounter;
+    private Counter recipientsCounter;
+    private Timer fanoutTimer;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("incident-fanout-"));
+        capacity = new Semaphore(workers + queueCapacity);
+
+        enqueuedCounter = meterRegistry.counter("incident.fanout.enqueued");
+        processedCounter = meterRegistry.counter("incident.fanout.processed");
+        retriedCounter = meterRegistry.counter("incident.fanout.retried");
+        failedCounter = meterRegistry.counter("incident.fanout.failed");
+        deferredCounter = meterRegistry.counter("incident.fanout.deferred");
+        recipientsCounter = meterRegistry.counter("incident.fanout.recipients");
+        fanoutTimer = meterRegistry.timer("incident.fanout.duration");
+        meterRegistry.gauge("incident.fanout.in_flight", capacity,
+                semaphore -> workers + queueCapacity - semaphore.availablePermits());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            // Las filas no terminadas se reclamarán al vencer staleAfterMs
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registra en el outbox el reparto de una notificación de incidente.
+     * Se despacha al confirmar la transacción que lo registra.
+     */
+    @Transactional
+    public void enqueue(Incident incident, NotificationType type) {
+        NotificationOutbox outbox = outboxRepository.save(NotificationOutbox.builder()
+                .incidentId(incident.getId())
+                .type(type)
+                .status(NotificationOutbox.OutboxStatus.PENDING)
+                .build());
+        enqueuedCounter.increment();
+
+        String outboxId = outbox.getId();
+        TransactionUtils.afterCommit(() -> submit(outboxId));
+    }
+
+    /**
+     * Recoge entradas pendientes, reintentos vencidos y entradas abandonadas por workers caídos
+     */
+    @Scheduled(fixedDelayString = "${notifications.fanout.poll-interval-ms:5000}",
+            scheduler = SchedulingConfig.FANOUT_POLL_SCHEDULER)
+    public void dispatchPending() {
+        jobMonitor.run("notifications.fanout.poll", pollIntervalMs, () -> {
+            int available = capacity.availablePermits();
+            if (available == 0) {
+                return 0;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<String> outboxIds = outboxRepository.findDispatchableIds(
+                    now, now.minus(staleAfterMs, ChronoUnit.MILLIS), PageRequest.of(0, available));
+            outboxIds.forEach(this::submit);
+            return outboxIds.size();
+        });
+    }
+
+    private void submit(String outboxId) {
+        if (!capacity.tryAcquire()) {
+            deferredCounter.increment();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(outboxId);
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            deferredCounter.increment();
+        }
+    }
+
+    private void process(String outboxId) {
+        // En milisegundos: se compara después con el valor guardado para comprobar que el reclamo sigue siendo nuestro
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Integer claimed = transactionTemplate.execute(status ->
+                outboxRepository.claim(outboxId, claimedAt, claimedAt.minus(staleAfterMs, ChronoUnit.MILLIS)));
+        if (claimed == null || claimed == 0) {
+            // Otro worker u otro nodo ya la tomó
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        PushDelivery delivery;
+        try {
+            delivery = transactionTemplate.execute(status -> fanout(outboxId, claimedAt));
+            processedCounter.increment();
+        } catch (Exception e) {
+            log.error("Error processing incident fanout {}", outboxId, e);
+            transactionTemplate.executeWithoutResult(status -> scheduleRetry(outboxId, claimedAt, e));
+            return;
+        } finally {
+            sample.stop(fanoutTimer);
+        }
+
+        if (delivery != null) {
+            send(delivery);
+        }
+    }
+
+    /**
+     * Cierra la entrada del outbox y crea las notificaciones en la misma transacción
+     *
+     * @return push por enviar, o null si no hay destinatarios o la entrada ya no es nuestra
+     */
+    private PushDelivery fanout(String outboxId, LocalDateTime claimedAt) {
+        // Primero el outbox: bloquea la fila y comprueba que nadie la retomó entretanto
+        if (outboxRepository.markDone(outboxId, claimedAt, LocalDateTime.now()) == 0) {
+            log.warn("Incident fanout {} was reclaimed by another worker", outboxId);
+            return null;
+        }
+
+        NotificationOutbox outbox = outboxRepository.findById(outboxId).orElse(null);
+        if (outbox == null) {
+            return null;
+        }
+
+        Optional<Incident> incident = incidentRepository.findById(outbox.getIncidentId());
+        if (incident.isEmpty() || incident.get().getStatus() != IncidentStatus.ACTIVE) {
+            return null;
+        }
+
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(pushLeaseMs, ChronoUnit.MILLIS);
+        PushDelivery delivery = outbox.getType() == NotificationType.INCIDENT_UPDATE
+                ? notifySignificantIntensityChanges(incident.get(), leaseUntil)
+                : notifyNearbyUsers(incident.get(), leaseUntil);
+        if (delivery != null) {
+            recipientsCounter.increment(delivery.recipients().size());
+        }
+        return delivery;
+    }
+
+    private void scheduleRetry(String outboxId, LocalDateTime claimedAt, Exception error) {
+        outboxRepository.findById(outboxId)
+                .filter(outbox -> outbox.getStatus() == NotificationOutbox.OutboxStatus.PROCESSING
+                        && claimedAt.equals(outbox.getClaimedAt()))
+                .ifPresent(outbox -> {
+                    int attempts = outbox.getAttempts() + 1;
+                    outbox.setAttempts(attempts);
+                    outbox.setLastError(truncate(error.getMessage()));
+
+                    if (attempts >= maxAttempts) {
+                        outbox.setStatus(NotificationOutbox.OutboxStatus.FAILED);
+                        failedCounter.increment();
+                        log.error("Incident fanout {} failed after {} attempts", outboxId, attempts);
+                    } else {
+                        // Backoff exponencial: base, 2x base, 4x base...
+                        long backoff = retryBackoffMs * (1L << Math.min(attempts - 1, 10));
+                        outbox.setStatus(NotificationOutbox.OutboxStatus.PENDING);
+                        outbox.setNextAttemptAt(LocalDateTime.now().plus(backoff, ChronoUnit.MILLIS));
+                        retriedCounter.increment();
+                    }
+                    outboxRepository.save(outbox);
+                });
+    }
+
+    /**
+     * Envía el push fuera de transacción y registra el resultado de cada notificación por su posición
+     */
+    private void send(PushDelivery delivery) {
+        Set<Integer> delivered;
+        try {
+            delivered = fcmService.sendToMultipleUsers(toTokens(delivery.recipients()), delivery.incident())
+                    .getDeliveredPositions();
+        } catch (Exception e) {
+            log.error("Error sending fanout pushes for incident {}", delivery.incident().getId(), e);
+            delivered = Set.of();
+        }
+
+        List<String> deliveredIds = new ArrayList<>();
+        List<String> failedIds = new ArrayList<>();
+        for (int i = 0; i < delivery.notificationIds().size(); i++) {
+            (delivered.contains(i) ? deliveredIds : failedIds).add(delivery.notificationIds().get(i));
+        }
+        notificationService.recordPushResults(deliveredIds, List.of(), failedIds);
+    }
+
+    /**
+     * Crea las notificaciones de un nuevo incidente para los usuarios cercanos
+     */
+    private PushDelivery notifyNearbyUsers(Incident incident, LocalDateTime leaseUntil) {
+        List<UserPositionGrid.Recipient> recipients = recipientResolver.findRecipients(incident);
+        if (recipients.isEmpty()) {
+            return null;
+        }
+
+        List<String> notificationIds = notificationService.createIncidentNotifications(toUserIds(recipients), incident, leaseUntil);
+
+        // Actualizar contador de notificaciones sin reescribir el incidente
+        incidentRepository.incrementTotalNotifications(incident.getId(), recipients.size());
+
+        return new PushDelivery(incident, recipients, notificationIds);
+    }
+
+    /**
+     * Crea las notificaciones de actualización para usuarios cercanos que no han interactuado
+     */
+    private PushDelivery notifySignificantIntensityChanges(Incident incident, LocalDateTime leaseUntil) {
+        // Un reparto concurrente del mismo incidente espera aquí y después ve las notificaciones de este
+        incidentRepository.lockUpdateFanout(incident.getId());
+
+        // No notificar a usuarios que ya han interactuado o ya recibieron una actualización
+        List<UserPositionGrid.Recipient> recipients = recipientResolver.findUpdateRecipients(incident);
+        if (recipients.isEmpty()) {
+            return null;
+        }
+
+        List<String> notificationIds = notificationService.createIncidentUpdateNotifications(toUserIds(recipients), incident, leaseUntil);
+        return new PushDelivery(incident, recipients, notificationIds);
+    }
+
+    private static List<String> toUserIds(List<UserPositionGrid.Recipient> recipients) {
+        return recipients.stream().map(UserPositionGrid.Recipient::userId).toList();
+    }
+
+    private static List<String> toTokens(List<UserPositionGrid.Recipient> recipients) {
+        return recipients.stream().map(UserPositionGrid.Recipient::fcmToken).toList();
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    /**
+     * Push pendiente de enviar: notificationIds está alineado con recipients
+     */
+    private record PushDelivery(Incident incident, List<UserPositionGrid.Recipient> recipients,
+                                List<String> notificationIds) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.incidentreporter.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Cálculo de la intensidad (0-100) de un incidente. Es una función pura de las
+ * confirmaciones, la fecha de la última confirmación y el instante actual, por lo
+ * que se evalúa al leer en lugar de reescribir los incidentes periódicamente.
+ */
+public final class IncidentIntensity {
+
+    // Tiempo fijo después del cual vuelve al color normal
+    public static final int DECAY_TIME_HOURS = 2;
+
+    private IncidentIntensity() {
+    }
+
+    public static double calculate(int confirmationCount, LocalDateTime lastConfirmationAt, LocalDateTime now) {
+        if (lastConfirmationAt == null) {
+            return 0; // Sin confirmaciones = color normal
+        }
+
+        double hoursElapsed = Duration.between(lastConfirmationAt, now).toMillis() / (1000.0 * 60 * 60);
+        if (hoursElapsed >= DECAY_TIME_HOURS) {
+            return 0; // Vuelve al color normal después del tiempo fijo
+        }
+
+        // Intensidad basada en confirmaciones (max 100)
+        double confirmationIntensity = Math.min(100, (confirmationCount / 5.0) * 100);
+
+        // Factor de decay lineal durante las 2 horas
+        double decayFactor = Math.max(0, 1 - (hoursElapsed / DECAY_TIME_HOURS));
+
+        return confirmationIntensity * decayFactor;
+    }
+}
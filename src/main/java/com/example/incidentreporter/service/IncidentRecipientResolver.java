@@ -0,0 +1,63 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.entity.Incident;
+import com.example.incidentreporter.repository.IncidentConfirmationRepository;
+import com.example.incidentreporter.repository.UserLocationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolución de destinatarios de notificaciones de un incidente.
+ * Cada búsqueda cuesta a lo sumo una consulta, sea cual sea el número de usuarios cercanos.
+ */
+@Component
+@RequiredArgsConstructor
+public class IncidentRecipientResolver {
+
+    private final IncidentConfirmationRepository incidentConfirmationRepository;
+    private final UserLocationRepository userLocationRepository;
+    private final UserPositionGrid userPositionGrid;
+
+    /**
+     * Usuarios notificables a menos de min(radio del incidente, radio de notificación del usuario):
+     * desde la malla en memoria si está cargada, o con la consulta espacial sobre user_locations si no
+     */
+    public List<UserPositionGrid.Recipient> findRecipients(Incident incident) {
+        if (userPositionGrid.isReady()) {
+            return userPositionGrid.findRecipients(incident.getLatitude(), incident.getLongitude(),
+                    incident.getRadius(), incident.getReporter().getId());
+        }
+
+        return userLocationRepository.findRecipientsWithinRadius(incident.getLatitude(), incident.getLongitude(),
+                        incident.getRadius(), incident.getReporter().getId()).stream()
+                .map(view -> new UserPositionGrid.Recipient(view.getId(), view.getFcmToken()))
+                .toList();
+    }
+
+    /**
+     * Como findRecipients, excluyendo a quienes ya confirmaron o negaron el incidente y a quienes
+     * ya recibieron una actualización suya. Con la malla basta una consulta por los índices de
+     * confirmaciones y notificaciones; sin ella, el filtro espacial y los anti-joins van en la misma consulta.
+     */
+    public List<UserPositionGrid.Recipient> findUpdateRecipients(Incident incident) {
+        if (userPositionGrid.isReady()) {
+            List<UserPositionGrid.Recipient> candidates = userPositionGrid.findRecipients(incident.getLatitude(),
+                    incident.getLongitude(), incident.getRadius(), incident.getReporter().getId());
+            if (candidates.isEmpty()) {
+                return candidates;
+            }
+            Set<String> excluded = incidentConfirmationRepository.findUserIdsExcludedFromUpdates(incident.getId());
+            return candidates.stream()
+                    .filter(recipient -> !excluded.contains(recipient.userId()))
+                    .toList();
+        }
+
+        return userLocationRepository.findUpdateRecipientsWithinRadius(incident.getLatitude(), incident.getLongitude(),
+                        incident.getRadius(), incident.getReporter().getId(), incident.getId()).stream()
+                .map(view -> new UserPositionGrid.Recipient(view.getId(), view.getFcmToken()))
+                .toList();
+    }
+}
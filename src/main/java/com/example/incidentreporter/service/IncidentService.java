@@ -1,34 +1,49 @@
 package com.example.incidentreporter.service;
 
+import com.example.incidentreporter.config.SchedulingConfig;
+import com.example.incidentreporter.dto.CursorPage;
 import com.example.incidentreporter.dto.IncidentConfirmationRequest;
 import com.example.incidentreporter.dto.IncidentDTO;
 import com.example.incidentreporter.dto.IncidentRequest;
+import com.example.incidentreporter.dto.NearbyIncidentPageView;
+import com.example.incidentreporter.dto.NearbyIncidentView;
 import com.example.incidentreporter.entity.Incident;
-import com.example.incidentreporter.entity.IncidentConfirmation;
 import com.example.incidentreporter.entity.User;
 import com.example.incidentreporter.entity.UserLocation;
-import com.example.incidentreporter.enums.ConfirmationAction;
+import com.example.incidentreporter.enums.IncidentCategory;
+import com.example.incidentreporter.enums.IncidentSeverity;
 import com.example.incidentreporter.enums.IncidentStatus;
+import com.example.incidentreporter.enums.NotificationType;
 import com.example.incidentreporter.exception.EntityNotFoundException;
+import com.example.incidentreporter.exception.InvalidCursorException;
 import com.example.incidentreporter.repository.IncidentConfirmationRepository;
 import com.example.incidentreporter.repository.IncidentRepository;
 import com.example.incidentreporter.repository.UserLocationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,10 +53,35 @@ public class IncidentService {
 
     private final IncidentRepository incidentRepository;
     private final IncidentConfirmationRepository incidentConfirmationRepository;
+    private final IncidentConfirmationWriter incidentConfirmationWriter;
     private final UserLocationRepository userLocationRepository;
-    private final FCMService fcmService;
-    private final NotificationService notificationService;
     private final UserService userService;
+    private final IncidentSpatialIndex incidentSpatialIndex;
+    private final IncidentFanoutService incidentFanoutService;
+    private final IncidentUpdateTracker incidentUpdateTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobMonitor jobMonitor;
+
+    @Value("${incidents.expiry.interval-ms:3600000}")
+    private long expiryIntervalMs;
+
+    @Value("${incidents.spatial-index.sync-interval-ms:15000}")
+    private long indexSyncIntervalMs;
+
+    // Margen hacia atrás de cada lectura: relojes de otros nodos y transacciones que confirmaron tarde
+    @Value("${incidents.spatial-index.sync-overlap-ms:60000}")
+    private long indexSyncOverlapMs;
+
+    // Hasta dónde se han aplicado al índice los cambios de la base de datos
+    private volatile LocalDateTime indexSyncedUntil;
+
+    // Filas expiradas por transacción en el job de expiración
+    private static final int EXPIRY_CHUNK_SIZE = 1000;
+
+    // Origen de la distancia guardada en los cursores de incidentes cercanos
+    private static final String CURSOR_SOURCE_INDEX = "i";
+    private static final String CURSOR_SOURCE_DATABASE = "d";
 
     private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
 
@@ -68,13 +108,13 @@ public class IncidentService {
                 .build();
 
         incident = incidentRepository.save(incident);
+        incidentSpatialIndex.putAfterCommit(toSnapshot(incident));
 
         // Actualizar estadísticas del usuario
-        currentUser.setTotalIncidentsReported(currentUser.getTotalIncidentsReported() + 1);
-        userService.saveUser(currentUser);
+        userService.recordIncidentReported(currentUser.getId());
 
-        // Notificar a usuarios cercanos
-        notifyNearbyUsers(incident);
+        // Notificar a usuarios cercanos de forma asíncrona
+        incidentFanoutService.enqueue(incident, NotificationType.NEW_INCIDENT);
 
         return mapToDTO(incident);
     }
@@ -84,45 +124,109 @@ public class IncidentService {
      */
     @Transactional(readOnly = true)
     public List<IncidentDTO> getIncidentsNearby(double latitude, double longitude, double radius, User currentUser) {
-        Point point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
-        List<Object[]> results = incidentRepository.findIncidentsWithinRadius(point, radius);
+        if (incidentSpatialIndex.isReady()) {
+            return mapHitsToDTOs(incidentSpatialIndex.findNearby(latitude, longitude, radius), currentUser);
+        }
 
-        return results.stream().map(result -> {
-            Incident incident = (Incident) result[0];
-            Double distance = (Double) result[1];
+        return incidentRepository.findIncidentsWithinRadius(latitude, longitude, radius, currentUser.getId()).stream()
+                .map(this::mapViewToDTO)
+                .collect(Collectors.toList());
+    }
 
-            IncidentDTO dto = mapToDTO(incident);
-            dto.setDistance(distance);
+    /**
+     * Obtiene incidentes cercanos paginados, ordenados por distancia
+     */
+    @Transactional(readOnly = true)
+    public Page<IncidentDTO> getIncidentsNearbyPaged(double latitude, double longitude, double radius, User currentUser, Pageable pageable) {
+        if (incidentSpatialIndex.isReady()) {
+            List<IncidentSpatialIndex.Hit> hits = incidentSpatialIndex.findNearby(latitude, longitude, radius);
+            if (pageable.isUnpaged()) {
+                return new PageImpl<>(mapHitsToDTOs(hits, currentUser), pageable, hits.size());
+            }
+            int from = (int) Math.min(pageable.getOffset(), hits.size());
+            int to = Math.min(from + pageable.getPageSize(), hits.size());
+            return new PageImpl<>(mapHitsToDTOs(hits.subList(from, to), currentUser), pageable, hits.size());
+        }
 
-            // Verificar si el usuario ya ha confirmado este incidente
-            boolean hasConfirmed = hasUserConfirmedIncident(incident, currentUser);
-            dto.setUserHasConfirmed(hasConfirmed);
+        if (pageable.isUnpaged()) {
+            List<IncidentDTO> incidents = getIncidentsNearby(latitude, longitude, radius, currentUser);
+            return new PageImpl<>(incidents, pageable, incidents.size());
+        }
 
-            return dto;
-        }).collect(Collectors.toList());
+        // Cada fila trae el total de la búsqueda; solo una página vacía más allá del final necesita contar aparte
+        List<NearbyIncidentPageView> results = incidentRepository.findIncidentsWithinRadiusPage(
+                latitude, longitude, radius, currentUser.getId(), pageable.getOffset(), pageable.getPageSize());
+        long total;
+        if (!results.isEmpty()) {
+            total = results.get(0).getTotalCount();
+        } else if (pageable.getOffset() > 0) {
+            total = incidentRepository.countIncidentsWithinRadius(latitude, longitude, radius);
+        } else {
+            total = 0;
+        }
+
+        return new PageImpl<>(results.stream().map(this::mapViewToDTO).collect(Collectors.toList()), pageable, total);
     }
 
     /**
-     * Obtiene incidentes cercanos paginados
+     * Obtiene incidentes cercanos paginando por cursor (distancia + id), sin COUNT ni OFFSET.
+     * El índice en memoria y PostGIS calculan la distancia con fórmulas distintas, así que el
+     * cursor guarda de qué camino salió y se sigue por ese mismo camino: un cursor de la base de
+     * datos continúa en la base de datos aunque el índice ya esté listo, y uno del índice se
+     * rechaza si el índice ha dejado de estar disponible (el cliente debe reiniciar el listado).
      */
     @Transactional(readOnly = true)
-    public Page<IncidentDTO> getIncidentsNearbyPaged(double latitude, double longitude, double radius, User currentUser, Pageable pageable) {
-        Point point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
-        Page<Object[]> results = incidentRepository.findIncidentsWithinRadiusPaged(point, radius, pageable);
-
-        return results.map(result -> {
-            Incident incident = (Incident) result[0];
-            Double distance = (Double) result[1];
+    public CursorPage<IncidentDTO> getIncidentsNearby(double latitude, double longitude, double radius,
+                                                      User currentUser, String cursor, int size) {
+        int pageSize = Cursors.pageSize(size);
+        boolean fromIndex = incidentSpatialIndex.isReady();
+        double afterDistance = -1;
+        String afterId = "";
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = Cursors.decode(cursor, 3);
+            switch (parts[0]) {
+                case CURSOR_SOURCE_DATABASE -> fromIndex = false;
+                case CURSOR_SOURCE_INDEX -> {
+                    if (!fromIndex) {
+                        throw new InvalidCursorException("Cursor expirado, vuelve a cargar el listado");
+                    }
+                }
+                default -> throw new InvalidCursorException("Cursor inválido");
+            }
+            try {
+                afterDistance = Double.parseDouble(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new InvalidCursorException("Cursor inválido");
+            }
+            afterId = parts[2];
+        }
 
-            IncidentDTO dto = mapToDTO(incident);
-            dto.setDistance(distance);
+        List<IncidentDTO> rows;
+        if (fromIndex) {
+            rows = mapHitsToDTOs(incidentSpatialIndex.findNearbyAfter(
+                    latitude, longitude, radius, afterDistance, afterId, pageSize + 1), currentUser);
+        } else {
+            rows = incidentRepository.findIncidentsWithinRadiusAfter(
+                            latitude, longitude, radius, currentUser.getId(), afterDistance, afterId, pageSize + 1)
+                    .stream()
+                    .map(this::mapViewToDTO)
+                    .collect(Collectors.toList());
+        }
 
-            // Verificar si el usuario ya ha confirmado este incidente
-            boolean hasConfirmed = hasUserConfirmedIncident(incident, currentUser);
-            dto.setUserHasConfirmed(hasConfirmed);
+        boolean hasNext = rows.size() > pageSize;
+        List<IncidentDTO> content = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            IncidentDTO last = content.get(content.size() - 1);
+            nextCursor = Cursors.encode(fromIndex ? CURSOR_SOURCE_INDEX : CURSOR_SOURCE_DATABASE,
+                    Double.toString(last.getDistance()), last.getId());
+        }
 
-            return dto;
-        });
+        return CursorPage.<IncidentDTO>builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
     }
 
     /**
@@ -142,7 +246,7 @@ public class IncidentService {
         // Si tenemos la ubicación actual del usuario, calcular distancia
         Optional<UserLocation> userLocation = userLocationRepository.findTopByUserOrderByTimestampDesc(currentUser);
         userLocation.ifPresent(location -> {
-            double distance = calculateDistance(
+            double distance = GeoUtils.distance(
                     location.getLatitude(), location.getLongitude(),
                     incident.getLatitude(), incident.getLongitude()
             );
@@ -157,242 +261,153 @@ public class IncidentService {
      */
     @Transactional
     public IncidentDTO confirmIncident(String id, IncidentConfirmationRequest request, User currentUser) {
-        Incident incident = incidentRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Incidente no encontrado con ID: " + id));
-
-        // Verificar si el usuario ya ha confirmado este incidente
-        Optional<IncidentConfirmation> existingConfirmation =
-                incidentConfirmationRepository.findByIncidentAndUser(incident, currentUser);
-
-        IncidentConfirmation confirmation;
-
-        if (existingConfirmation.isPresent()) {
-            // Actualizar confirmación existente
-            confirmation = existingConfirmation.get();
-
-            // Si la acción anterior era CONFIRMED y ahora es DENIED, ajustar contadores
-            if (confirmation.getAction() == ConfirmationAction.CONFIRMED &&
-                    request.getAction() == ConfirmationAction.DENIED) {
-                incident.setConfirmationCount(incident.getConfirmationCount() - 1);
-                incident.setDenialCount(incident.getDenialCount() + 1);
-            }
-            // Si la acción anterior era DENIED y ahora es CONFIRMED, ajustar contadores
-            else if (confirmation.getAction() == ConfirmationAction.DENIED &&
-                    request.getAction() == ConfirmationAction.CONFIRMED) {
-                incident.setConfirmationCount(incident.getConfirmationCount() + 1);
-                incident.setDenialCount(incident.getDenialCount() - 1);
-            }
-
-            confirmation.setAction(request.getAction());
-            confirmation.setTimestamp(LocalDateTime.now());
-            confirmation.setUserLatitude(request.getUserLatitude());
-            confirmation.setUserLongitude(request.getUserLongitude());
-            confirmation.setComment(request.getComment());
-            confirmation.setConfidence(request.getConfidence());
-            confirmation.setNotificationDelay(request.getNotificationDelay());
-            confirmation.setDeviceType(request.getDeviceType());
-        } else {
-            // Crear nueva confirmación
-            confirmation = IncidentConfirmation.builder()
-                    .incident(incident)
-                    .user(currentUser)
-                    .action(request.getAction())
-                    .userLatitude(request.getUserLatitude())
-                    .userLongitude(request.getUserLongitude())
-                    .comment(request.getComment())
-                    .confidence(request.getConfidence())
-                    .notificationDelay(request.getNotificationDelay())
-                    .deviceType(request.getDeviceType())
-                    .build();
-
-            // Actualizar contadores
-            if (request.getAction() == ConfirmationAction.CONFIRMED) {
-                incident.setConfirmationCount(incident.getConfirmationCount() + 1);
-                // Actualizar estadísticas del usuario
-                currentUser.setTotalConfirmations(currentUser.getTotalConfirmations() + 1);
-                userService.saveUser(currentUser);
-            } else if (request.getAction() == ConfirmationAction.DENIED) {
-                incident.setDenialCount(incident.getDenialCount() + 1);
-            }
+        if (!incidentRepository.existsById(id)) {
+            throw new EntityNotFoundException("Incidente no encontrado con ID: " + id);
         }
 
-        // Si acción es CONFIRMED, actualizar lastConfirmationAt
-        if (request.getAction() == ConfirmationAction.CONFIRMED) {
-            incident.setLastConfirmationAt(LocalDateTime.now());
+        // Upsert sobre (incident_id, user_id) y deltas según la acción anterior del usuario, si la había.
+        // Si acción es CONFIRMED, se actualiza lastConfirmationAt
+        LocalDateTime now = LocalDateTime.now();
+        IncidentConfirmationWriter.Vote vote = incidentConfirmationWriter.record(id, currentUser.getId(), request, now);
+        int confirmationDelta = vote.confirmationDelta();
+        int denialDelta = vote.denialDelta();
+        IncidentConfirmationWriter.Counters counters = vote.counters();
+        if (counters == null) {
+            throw new EntityNotFoundException("Incidente no encontrado con ID: " + id);
         }
 
-        // Calcular nueva intensidad
-        updateIncidentIntensity(incident);
-
-        // Guardar confirmación y actualizar incidente
-        incidentConfirmationRepository.save(confirmation);
-        incident = incidentRepository.save(incident);
+        // Actualizar estadísticas del votante y la puntuación del autor
+        userService.recordConfirmationOutcome(currentUser.getId(), counters.reporterId(), confirmationDelta, denialDelta);
 
-        // Si hay muchas confirmaciones, considerar actualizaciones
-        if (incident.getConfirmationCount() >= 5 && incident.getDenialCount() <= incident.getConfirmationCount() / 3) {
-            // Notificar mediante FCM si hay cambios significativos de intensidad
-            notifySignificantIntensityChanges(incident);
+        // Si hay muchas negaciones, considerar marcar como disputado
+        if (counters.denialCount() >= 10 && counters.denialCount() > counters.confirmationCount() * 2) {
+            incidentRepository.markDisputed(id, now);
         }
 
-        // Si hay muchas negaciones, considerar marcar como disputado
-        if (incident.getDenialCount() >= 10 && incident.getDenialCount() > incident.getConfirmationCount() * 2) {
-            incident.setStatus(IncidentStatus.DISPUTED);
-            incidentRepository.save(incident);
+        // Las sentencias anteriores no pasan por la entidad: se lee ya con el estado final
+        Incident incident = incidentRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Incidente no encontrado con ID: " + id));
+
+        // Notificar solo al cruzar un escalón de confirmaciones, no en cada confirmación posterior
+        if (confirmationDelta > 0
+                && counters.denialCount() <= counters.confirmationCount() / 3
+                && incidentUpdateTracker.crossesThreshold(
+                        counters.confirmationCount() - confirmationDelta, counters.confirmationCount())) {
+            incidentFanoutService.enqueue(incident, NotificationType.INCIDENT_UPDATE);
         }
 
+        incidentSpatialIndex.putAfterCommit(toSnapshot(incident));
+
         return mapToDTO(incident);
     }
 
     /**
-     * Actualiza la intensidad del incidente basada en confirmaciones
+     * Job programado para marcar incidentes expirados
      */
-    public void updateIncidentIntensity(Incident incident) {
-        final int DECAY_TIME_HOURS = 2; // Tiempo fijo después del cual vuelve al color normal
-
-        if (incident.getLastConfirmationAt() == null) {
-            incident.setIntensityLevel(0); // Sin confirmaciones = color normal
-            return;
-        }
+    @Scheduled(fixedDelayString = "${incidents.expiry.interval-ms:3600000}",
+            scheduler = SchedulingConfig.EXPIRY_SCHEDULER)
+    public void markExpiredIncidents() {
+        jobMonitor.run("incidents.expiry", expiryIntervalMs, this::expireIncidents);
+    }
 
+    private int expireIncidents() {
+        long start = System.nanoTime();
         LocalDateTime now = LocalDateTime.now();
-        double hoursElapsed = java.time.Duration.between(incident.getLastConfirmationAt(), now).toMillis() / (1000.0 * 60 * 60);
-
-        if (hoursElapsed >= DECAY_TIME_HOURS) {
-            incident.setIntensityLevel(0); // Vuelve al color normal después del tiempo fijo
-            return;
-        }
-
-        // Intensidad basada en confirmaciones (max 100)
-        double confirmationIntensity = Math.min(100, (incident.getConfirmationCount() / 5.0) * 100);
-
-        // Factor de decay lineal durante las 2 horas
-        double decayFactor = Math.max(0, 1 - (hoursElapsed / DECAY_TIME_HOURS));
-
-        incident.setIntensityLevel(confirmationIntensity * decayFactor);
+        int totalExpired = 0;
+        List<String> expiredIds;
+
+        // UPDATE ... RETURNING id por bloques, cada bloque en su propia transacción
+        do {
+            expiredIds = transactionTemplate.execute(status ->
+                    incidentRepository.expireActiveIncidents(now, EXPIRY_CHUNK_SIZE));
+            if (expiredIds == null) {
+                break;
+            }
+            incidentSpatialIndex.removeAll(expiredIds, IncidentStatus.EXPIRED, now);
+            totalExpired += expiredIds.size();
+        } while (expiredIds.size() == EXPIRY_CHUNK_SIZE);
+
+        long elapsedNanos = System.nanoTime() - start;
+        meterRegistry.counter("incidents.expired").increment(totalExpired);
+        log.info("Marked {} incidents as expired in {} ms", totalExpired, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        return totalExpired;
     }
 
     /**
-     * Job programado para actualizar intensidades de incidentes
+     * Carga el índice espacial en memoria con los incidentes activos al arrancar
      */
-    @Scheduled(fixedRate = 300000) // Cada 5 minutos
-    @Transactional
-    public void updateAllIncidentIntensities() {
-        List<Incident> activeIncidents = incidentRepository.findByStatusOrderByCreatedAtDesc(IncidentStatus.ACTIVE);
-
-        for (Incident incident : activeIncidents) {
-            double oldIntensity = incident.getIntensityLevel();
-            updateIncidentIntensity(incident);
-
-            // Si hay un cambio significativo en la intensidad, guardar y posiblemente notificar
-            if (Math.abs(oldIntensity - incident.getIntensityLevel()) > 20) {
-                incidentRepository.save(incident);
-
-                // Notificar a usuarios cercanos sobre cambios significativos
-                if (incident.getIntensityLevel() >= 70 && oldIntensity < 70) {
-                    notifySignificantIntensityChanges(incident);
-                }
-            }
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUpSpatialIndex() {
+        try {
+            indexSyncedUntil = LocalDateTime.now();
+            List<IncidentDTO> snapshots = incidentRepository.findActiveWithReporter().stream()
+                    .map(this::toSnapshot)
+                    .collect(Collectors.toList());
+            incidentSpatialIndex.load(snapshots);
+        } catch (Exception e) {
+            // El índice queda frío y las consultas usan PostGIS
+            log.error("Could not warm up incident spatial index", e);
         }
     }
 
     /**
-     * Job programado para marcar incidentes expirados
+     * Resincroniza el índice espacial con los incidentes creados, confirmados o expirados
+     * en cualquier nodo desde la última lectura
      */
-    @Scheduled(fixedRate = 3600000) // Cada 1 hora
-    @Transactional
-    public void markExpiredIncidents() {
-        LocalDateTime now = LocalDateTime.now();
-        List<Incident> expiredIncidents = incidentRepository.findExpiredIncidents(now);
-
-        for (Incident incident : expiredIncidents) {
-            incident.setStatus(IncidentStatus.EXPIRED);
-            incidentRepository.save(incident);
-            log.info("Incident marked as expired: {}", incident.getId());
+    @Scheduled(fixedDelayString = "${incidents.spatial-index.sync-interval-ms:15000}",
+            scheduler = SchedulingConfig.INDEX_SYNC_SCHEDULER)
+    public void syncSpatialIndex() {
+        if (!incidentSpatialIndex.isReady() || indexSyncedUntil == null) {
+            return;
         }
+        jobMonitor.run("incidents.spatial-index.sync", indexSyncIntervalMs, () -> {
+            LocalDateTime startedAt = LocalDateTime.now();
+            LocalDateTime since = indexSyncedUntil.minus(indexSyncOverlapMs, ChronoUnit.MILLIS);
+            List<IncidentDTO> snapshots = transactionTemplate.execute(status ->
+                    incidentRepository.findUpdatedSinceWithReporter(since).stream()
+                            .map(this::toSnapshot)
+                            .collect(Collectors.toList()));
+            if (snapshots == null) {
+                return 0;
+            }
+            incidentSpatialIndex.sync(snapshots);
+            indexSyncedUntil = startedAt;
+            return snapshots.size();
+        });
     }
 
     /**
-     * Envía notificaciones a usuarios cercanos sobre un nuevo incidente
+     * Convierte resultados del índice espacial a DTOs, marcando los incidentes confirmados por el usuario
      */
-    private void notifyNearbyUsers(Incident incident) {
-        Point point = incident.getLocation();
-        List<User> nearbyUsers = userLocationRepository.findDistinctUsersWithinRadius(point, incident.getRadius());
-
-        List<String> validTokens = new ArrayList<>();
-
-        for (User user : nearbyUsers) {
-            // No notificar al creador del incidente
-            if (user.getId().equals(incident.getReporter().getId())) {
-                continue;
-            }
-
-            // Solo notificar a usuarios con notificaciones habilitadas
-            if (!user.isNotificationsEnabled()) {
-                continue;
-            }
-
-            // Solo notificar a usuarios con tokens FCM válidos
-            if (user.getFcmToken() == null || user.getFcmToken().isEmpty()) {
-                continue;
-            }
-
-            validTokens.add(user.getFcmToken());
-
-            // Crear notificación en el sistema
-            notificationService.createIncidentNotification(user, incident);
+    private List<IncidentDTO> mapHitsToDTOs(List<IncidentSpatialIndex.Hit> hits, User currentUser) {
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        // Enviar notificaciones FCM en lote si hay tokens válidos
-        if (!validTokens.isEmpty()) {
-            fcmService.sendToMultipleUsers(validTokens, incident);
+        List<String> incidentIds = hits.stream().map(hit -> hit.incident().getId()).collect(Collectors.toList());
+        Set<String> confirmedIds = incidentConfirmationRepository.findIncidentIdsInteractedByUser(currentUser, incidentIds);
+        LocalDateTime now = LocalDateTime.now();
 
-            // Actualizar contador de notificaciones
-            incident.setTotalNotifications(incident.getTotalNotifications() + validTokens.size());
-            incidentRepository.save(incident);
-        }
+        return hits.stream()
+                .map(hit -> hit.incident().toBuilder()
+                        .intensityLevel(IncidentIntensity.calculate(
+                                hit.incident().getConfirmationCount(), hit.incident().getLastConfirmationAt(), now))
+                        .distance(hit.distance())
+                        .userHasConfirmed(confirmedIds.contains(hit.incident().getId()))
+                        .build())
+                .collect(Collectors.toList());
     }
 
     /**
-     * Notifica a usuarios cercanos sobre cambios significativos en la intensidad
+     * Copia inmutable de un incidente para el índice espacial
      */
-    private void notifySignificantIntensityChanges(Incident incident) {
-        Point point = incident.getLocation();
-        List<User> nearbyUsers = userLocationRepository.findDistinctUsersWithinRadius(point, incident.getRadius());
-
-        List<String> validTokens = new ArrayList<>();
-
-        for (User user : nearbyUsers) {
-            // No notificar al creador del incidente
-            if (user.getId().equals(incident.getReporter().getId())) {
-                continue;
-            }
-
-            // Solo notificar a usuarios con notificaciones habilitadas
-            if (!user.isNotificationsEnabled()) {
-                continue;
-            }
-
-            // Solo notificar a usuarios con tokens FCM válidos
-            if (user.getFcmToken() == null || user.getFcmToken().isEmpty()) {
-                continue;
-            }
-
-            // Verificar si ya hay una confirmación del usuario
-            boolean hasConfirmed = hasUserConfirmedIncident(incident, user);
-            if (hasConfirmed) {
-                continue; // No notificar a usuarios que ya han interactuado
-            }
-
-            validTokens.add(user.getFcmToken());
-
-            // Crear notificación de actualización en el sistema
-            notificationService.createIncidentUpdateNotification(user, incident);
-        }
-
-        // Enviar notificaciones FCM en lote si hay tokens válidos
-        if (!validTokens.isEmpty()) {
-            fcmService.sendToMultipleUsers(validTokens, incident);
-        }
+    private IncidentDTO toSnapshot(Incident incident) {
+        List<String> imageUrls = incident.getImageUrls() == null ? null
+                : Collections.unmodifiableList(new ArrayList<>(incident.getImageUrls()));
+        return mapToDTO(incident).toBuilder()
+                .imageUrls(imageUrls)
+                .build();
     }
 
     /**
@@ -424,26 +439,40 @@ public class IncidentService {
                 .confirmationCount(incident.getConfirmationCount())
                 .denialCount(incident.getDenialCount())
                 .radius(incident.getRadius())
-                .intensityLevel(incident.getIntensityLevel())
+                .intensityLevel(IncidentIntensity.calculate(
+                        incident.getConfirmationCount(), incident.getLastConfirmationAt(), LocalDateTime.now()))
                 .lastConfirmationAt(incident.getLastConfirmationAt())
                 .imageUrls(incident.getImageUrls())
                 .audioUrl(incident.getAudioUrl())
                 .build();
     }
 
-    /**
-     * Calcula la distancia entre dos puntos usando la fórmula de Haversine
-     */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radio de la Tierra en km
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c * 1000; // convertir a metros
-
-        return distance;
+    private IncidentDTO mapViewToDTO(NearbyIncidentView view) {
+        return IncidentDTO.builder()
+                .id(view.getId())
+                .reporterId(view.getReporterId())
+                .reporterEmail(view.getReporterEmail())
+                .latitude(view.getLatitude())
+                .longitude(view.getLongitude())
+                .address(view.getAddress())
+                .title(view.getTitle())
+                .description(view.getDescription())
+                .severity(IncidentSeverity.valueOf(view.getSeverity()))
+                .category(IncidentCategory.valueOf(view.getCategory()))
+                .status(IncidentStatus.valueOf(view.getStatus()))
+                .createdAt(view.getCreatedAt())
+                .updatedAt(view.getUpdatedAt())
+                .expiresAt(view.getExpiresAt())
+                .confirmationCount(view.getConfirmationCount())
+                .denialCount(view.getDenialCount())
+                .radius(view.getRadius())
+                .intensityLevel(IncidentIntensity.calculate(
+                        view.getConfirmationCount(), view.getLastConfirmationAt(), LocalDateTime.now()))
+                .lastConfirmationAt(view.getLastConfirmationAt())
+                .imageUrls(view.getImageUrls() != null ? new ArrayList<>(view.getImageUrls()) : new ArrayList<>())
+                .audioUrl(view.getAudioUrl())
+                .distance(view.getDistance())
+                .userHasConfirmed(view.getUserHasConfirmed())
+                .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,266 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.IncidentDTO;
+import com.example.incidentreporter.enums.IncidentStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Índice espacial en memoria de incidentes ACTIVE.
+ * Agrupa los incidentes en una malla de celdas de tamaño fijo (en grados) para
+ * responder consultas de cercanía sin ir a PostGIS. Mientras no se haya cargado
+ * desde la base de datos se considera "frío" y las consultas deben usar el repositorio.
+ */
+@Component
+@Slf4j
+public class IncidentSpatialIndex {
+
+    // ~1.1 km de latitud por celda
+    private static final double CELL_SIZE_DEGREES = 0.01;
+    private static final int LONGITUDE_CELLS = GeoUtils.longitudeCells(CELL_SIZE_DEGREES);
+    // Margen de sobra para que llegue cualquier snapshot retrasado (afterCommit o resincronización en curso)
+    private static final Duration TOMBSTONE_RETENTION = Duration.ofMinutes(10);
+
+    // Orden de los resultados y de los cursores: distancia ascendente y, a igual distancia, id
+    private static final Comparator<Hit> HIT_ORDER =
+            Comparator.comparingDouble(Hit::distance).thenComparing(hit -> hit.incident().getId());
+
+    // Snapshots ACTIVE (en las celdas) y marcas de borrado recientes (no ACTIVE, fuera de las celdas)
+    private final Map<String, IncidentDTO> snapshots = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> cells = new ConcurrentHashMap<>();
+    private final AtomicBoolean ready = new AtomicBoolean(false);
+
+    @Value("${incidents.spatial-index.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Indica si el índice está cargado y puede responder consultas
+     */
+    public boolean isReady() {
+        return enabled && ready.get();
+    }
+
+    /**
+     * Carga inicial del índice. No sobrescribe snapshots más recientes registrados durante la carga.
+     */
+    public void load(Collection<IncidentDTO> incidents) {
+        if (!enabled) {
+            return;
+        }
+        incidents.forEach(this::apply);
+        ready.set(true);
+        log.info("Incident spatial index loaded with {} active incidents", incidents.size());
+    }
+
+    /**
+     * Inserta o actualiza el snapshot de un incidente. Los incidentes no ACTIVE se eliminan del índice.
+     * Un snapshot más antiguo (por updatedAt) que el registrado se ignora.
+     */
+    public void put(IncidentDTO incident) {
+        if (!enabled) {
+            return;
+        }
+        apply(incident);
+    }
+
+    /**
+     * Aplica los cambios leídos de la base de datos por la resincronización periódica,
+     * que recoge lo que escribieron otros nodos, y descarta las marcas de borrado antiguas
+     */
+    public void sync(Collection<IncidentDTO> incidents) {
+        if (!isReady()) {
+            return;
+        }
+        incidents.forEach(this::apply);
+
+        LocalDateTime purgeBefore = LocalDateTime.now().minus(TOMBSTONE_RETENTION);
+        snapshots.values().removeIf(snapshot -> snapshot.getStatus() != IncidentStatus.ACTIVE
+                && (snapshot.getUpdatedAt() == null || snapshot.getUpdatedAt().isBefore(purgeBefore)));
+    }
+
+    /**
+     * Elimina del índice los incidentes que dejaron de estar activos en removedAt
+     * (el updatedAt que se les dio en la base de datos)
+     */
+    public void removeAll(Collection<String> incidentIds, IncidentStatus status, LocalDateTime removedAt) {
+        if (!enabled) {
+            return;
+        }
+        for (String incidentId : incidentIds) {
+            apply(IncidentDTO.builder().id(incidentId).status(status).updatedAt(removedAt).build());
+        }
+    }
+
+    /**
+     * Sustituye el snapshot si el candidato no es más antiguo que el registrado. La comprobación,
+     * la sustitución y el cambio de celda se hacen dentro de un único compute sobre el incidente,
+     * así dos escrituras del mismo incidente no se intercalan. Un incidente que deja de estar ACTIVE
+     * se conserva como marca de borrado (fuera de las celdas) hasta que pasa TOMBSTONE_RETENTION,
+     * para que un snapshot ACTIVE anterior que llegue tarde no lo vuelva a insertar.
+     */
+    private void apply(IncidentDTO candidate) {
+        snapshots.compute(candidate.getId(), (id, current) -> {
+            if (current != null && isNewer(current, candidate)) {
+                return current;
+            }
+            if (current != null && current.getStatus() == IncidentStatus.ACTIVE) {
+                removeFromCell(current);
+            }
+            if (candidate.getStatus() == IncidentStatus.ACTIVE) {
+                addToCell(candidate);
+            }
+            return candidate;
+        });
+    }
+
+    /**
+     * Inserta o actualiza el snapshot cuando la transacción actual confirme
+     */
+    public void putAfterCommit(IncidentDTO incident) {
+        TransactionUtils.afterCommit(() -> put(incident));
+    }
+
+    /**
+     * Busca incidentes activos dentro del radio, ordenados por distancia ascendente
+     */
+    public List<Hit> findNearby(double latitude, double longitude, double radius) {
+        List<Hit> hits = new ArrayList<>();
+        scan(latitude, longitude, radius, hits::add);
+        hits.sort(HIT_ORDER);
+        return hits;
+    }
+
+    /**
+     * Página de incidentes activos dentro del radio que van después del cursor (distancia, id),
+     * ordenada por distancia ascendente. Solo conserva los limit más cercanos en un montículo
+     * acotado, así una página profunda no ordena ni copia todos los incidentes del radio.
+     */
+    public List<Hit> findNearbyAfter(double latitude, double longitude, double radius,
+                                     double afterDistance, String afterId, int limit) {
+        // Montículo de máximos: la cima es el peor de los limit mejores vistos hasta ahora
+        PriorityQueue<Hit> nearest = new PriorityQueue<>(limit + 1, HIT_ORDER.reversed());
+        scan(latitude, longitude, radius, hit -> {
+            if (hit.distance() < afterDistance
+                    || (hit.distance() == afterDistance && hit.incident().getId().compareTo(afterId) <= 0)) {
+                return;
+            }
+            if (nearest.size() < limit) {
+                nearest.add(hit);
+            } else if (HIT_ORDER.compare(hit, nearest.peek()) < 0) {
+                nearest.poll();
+                nearest.add(hit);
+            }
+        });
+
+        List<Hit> page = new ArrayList<>(nearest);
+        page.sort(HIT_ORDER);
+        return page;
+    }
+
+    // Entrega cada incidente vigente dentro del radio, sin orden
+    private void scan(double latitude, double longitude, double radius, Consumer<Hit> hits) {
+        double latDelta = GeoUtils.latitudeDelta(radius);
+        double lonDelta = GeoUtils.longitudeDelta(radius, latitude);
+        int minLat = cellIndex(latitude - latDelta);
+        int maxLat = cellIndex(latitude + latDelta);
+        int minLon = cellIndex(longitude - lonDelta);
+        int maxLon = cellIndex(longitude + lonDelta);
+        // Sin normalizar, el rango puede cruzar el antimeridiano; nunca recorre más de una vuelta
+        int lonSpan = Math.min(maxLon - minLon, LONGITUDE_CELLS - 1);
+
+        LocalDateTime now = LocalDateTime.now();
+        long cellCount = (long) (maxLat - minLat + 1) * (lonSpan + 1);
+
+        if (cellCount > cells.size()) {
+            // Radio grande: es más barato recorrer solo las celdas ocupadas
+            cells.forEach((key, ids) -> {
+                int latIndex = (int) (key >> 32);
+                int lonIndex = key.intValue();
+                if (latIndex >= minLat && latIndex <= maxLat
+                        && GeoUtils.inLongitudeCellRange(lonIndex, minLon, maxLon, LONGITUDE_CELLS)) {
+                    collectHits(ids, latitude, longitude, radius, now, hits);
+                }
+            });
+        } else {
+            for (int latIndex = minLat; latIndex <= maxLat; latIndex++) {
+                for (int offset = 0; offset <= lonSpan; offset++) {
+                    int lonIndex = GeoUtils.wrapLongitudeCell(minLon + offset, LONGITUDE_CELLS);
+                    Set<String> ids = cells.get(cellKey(latIndex, lonIndex));
+                    if (ids != null) {
+                        collectHits(ids, latitude, longitude, radius, now, hits);
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectHits(Set<String> ids, double latitude, double longitude, double radius,
+                             LocalDateTime now, Consumer<Hit> hits) {
+        for (String id : ids) {
+            IncidentDTO incident = snapshots.get(id);
+            if (incident == null || incident.getStatus() != IncidentStatus.ACTIVE) {
+                continue;
+            }
+            // Un incidente vencido aún no marcado por el job no debe mostrarse
+            if (incident.getExpiresAt() != null && incident.getExpiresAt().isBefore(now)) {
+                continue;
+            }
+            double distance = GeoUtils.distance(latitude, longitude, incident.getLatitude(), incident.getLongitude());
+            if (distance <= radius) {
+                hits.accept(new Hit(incident, distance));
+            }
+        }
+    }
+
+    private void removeFromCell(IncidentDTO incident) {
+        cells.computeIfPresent(cellKey(incident.getLatitude(), incident.getLongitude()), (key, ids) -> {
+            ids.remove(incident.getId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private void addToCell(IncidentDTO incident) {
+        cells.compute(cellKey(incident.getLatitude(), incident.getLongitude()), (key, ids) -> {
+            Set<String> cellIds = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            cellIds.add(incident.getId());
+            return cellIds;
+        });
+    }
+
+    private static int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / CELL_SIZE_DEGREES);
+    }
+
+    private static long cellKey(double latitude, double longitude) {
+        return cellKey(cellIndex(latitude), GeoUtils.wrapLongitudeCell(cellIndex(longitude), LONGITUDE_CELLS));
+    }
+
+    private static boolean isNewer(IncidentDTO current, IncidentDTO candidate) {
+        return current.getUpdatedAt() != null && candidate.getUpdatedAt() != null
+                && current.getUpdatedAt().isAfter(candidate.getUpdatedAt());
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    /**
+     * Resultado de una consulta: snapshot del incidente y distancia en metros
+     */
+    public record Hit(IncidentDTO incident, double distance) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.incidentreporter.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Control de las notificaciones INCIDENT_UPDATE.
+ * Solo se disparan cuando las confirmaciones cruzan un escalón de la escala configurada.
+ * Que nadie reciba dos veces una actualización del mismo incidente lo garantiza la base de
+ * datos: al resolver destinatarios se excluye a quien ya tiene una notificación INCIDENT_UPDATE
+ * de ese incidente, y los repartos de un mismo incidente se serializan con un advisory lock.
+ */
+@Component
+@RequiredArgsConstructor
+public class IncidentUpdateTracker {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notifications.updates.thresholds:5,10,25,50,100}")
+    private int[] thresholds;
+
+    private Counter triggeredCounter;
+    private Counter suppressedCounter;
+
+    @PostConstruct
+    public void init() {
+        thresholds = Arrays.stream(thresholds).sorted().toArray();
+        triggeredCounter = meterRegistry.counter("notifications.updates.triggered");
+        suppressedCounter = meterRegistry.counter("notifications.updates.suppressed");
+    }
+
+    /**
+     * Indica si pasar de previousCount a newCount confirmaciones cruza algún escalón.
+     * Como los contadores se actualizan de forma atómica, solo una confirmación cruza cada escalón.
+     */
+    public boolean crossesThreshold(int previousCount, int newCount) {
+        for (int threshold : thresholds) {
+            if (previousCount < threshold && threshold <= newCount) {
+                triggeredCounter.increment();
+                return true;
+            }
+        }
+        suppressedCounter.increment();
+        return false;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.config.SchedulingConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffer de escritura de ubicaciones. Cada ping sustituye al pendiente del mismo usuario
+ * y un flush periódico persiste solo el último de cada uno en lotes JDBC:
+ * upsert de la fila activa (una por usuario), fila de historial cada historyIntervalMs
+ * y actualización de users.last_active_at.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LocationIngestBuffer {
+
+    private static final String UPSERT_ACTIVE_SQL =
+            "INSERT INTO user_locations (id, user_id, location, latitude, longitude, accuracy, timestamp, is_active) " +
+            "VALUES (?, ?, ST_SetSRID(ST_MakePoint(?, ?), 4326), ?, ?, ?, ?, true) " +
+            "ON CONFLICT (user_id) WHERE is_active = true DO UPDATE SET " +
+            "location = EXCLUDED.location, latitude = EXCLUDED.latitude, longitude = EXCLUDED.longitude, " +
+            "accuracy = EXCLUDED.accuracy, timestamp = EXCLUDED.timestamp";
+
+    private static final String INSERT_HISTORY_SQL =
+            "INSERT INTO user_locations (id, user_id, location, latitude, longitude, accuracy, timestamp, is_active) " +
+            "VALUES (?, ?, ST_SetSRID(ST_MakePoint(?, ?), 4326), ?, ?, ?, ?, false)";
+
+    private static final String UPDATE_LAST_ACTIVE_SQL =
+            "UPDATE users SET last_active_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobMonitor jobMonitor;
+
+    @Value("${locations.ingest.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${locations.ingest.history-interval-ms:60000}")
+    private long historyIntervalMs;
+
+    @Value("${locations.ingest.history-maximum-size:100000}")
+    private long historyMaximumSize;
+
+    // Último ping pendiente de persistir por usuario
+    private final Map<String, PendingLocation> pending = new ConcurrentHashMap<>();
+    // Momento de la última fila de historial escrita por usuario; pasado historyIntervalMs la
+    // entrada ya no suprime nada, y si se desaloja antes solo se adelanta una fila de historial
+    private Cache<String, LocalDateTime> lastHistoryAt;
+
+    private Counter receivedCounter;
+    private Counter flushedCounter;
+    private Counter historyCounter;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() {
+        lastHistoryAt = Caffeine.newBuilder()
+                .maximumSize(historyMaximumSize)
+                .expireAfterWrite(Duration.ofMillis(historyIntervalMs))
+                .build();
+        receivedCounter = meterRegistry.counter("locations.ingest.received");
+        flushedCounter = meterRegistry.counter("locations.ingest.flushed");
+        historyCounter = meterRegistry.counter("locations.ingest.history");
+        flushTimer = meterRegistry.timer("locations.ingest.flush.duration");
+        meterRegistry.gauge("locations.ingest.pending", pending, Map::size);
+    }
+
+    /**
+     * Registra un ping; sustituye al pendiente del mismo usuario si aún no se ha persistido
+     */
+    public void offer(PendingLocation location) {
+        pending.put(location.userId(), location);
+        receivedCounter.increment();
+    }
+
+    /**
+     * Último ping aún no persistido de un usuario
+     */
+    public Optional<PendingLocation> findPending(String userId) {
+        return Optional.ofNullable(pending.get(userId));
+    }
+
+    @Scheduled(fixedDelayString = "${locations.ingest.flush-interval-ms:1000}",
+            scheduler = SchedulingConfig.LOCATION_FLUSH_SCHEDULER)
+    public void scheduledFlush() {
+        jobMonitor.run("locations.ingest.flush", flushIntervalMs, this::flush);
+    }
+
+    /**
+     * Persiste los pings pendientes
+     *
+     * @return pings persistidos
+     */
+    public int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        // remove() por clave es atómico: un ping que llegue durante el flush queda para el siguiente
+        List<PendingLocation> batch = new ArrayList<>(pending.size());
+        for (String userId : pending.keySet()) {
+            PendingLocation location = pending.remove(userId);
+            if (location != null) {
+                batch.add(location);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<PendingLocation> history = new ArrayList<>();
+        for (PendingLocation location : batch) {
+            LocalDateTime previous = lastHistoryAt.getIfPresent(location.userId());
+            if (previous == null || !location.timestamp().isBefore(previous.plus(historyIntervalMs, ChronoUnit.MILLIS))) {
+                history.add(location);
+            }
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPSERT_ACTIVE_SQL, toLocationArgs(batch));
+                if (!history.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_HISTORY_SQL, toLocationArgs(history));
+                }
+                jdbcTemplate.batchUpdate(UPDATE_LAST_ACTIVE_SQL, batch.stream()
+                        .map(location -> new Object[]{Timestamp.valueOf(location.timestamp()), location.userId()})
+                        .toList());
+            });
+            history.forEach(location -> lastHistoryAt.put(location.userId(), location.timestamp()));
+            flushedCounter.increment(batch.size());
+            historyCounter.increment(history.size());
+            return batch.size();
+        } catch (Exception e) {
+            log.error("Error flushing {} buffered locations", batch.size(), e);
+            // Reencolar sin pisar pings más recientes recibidos durante el flush
+            batch.forEach(location -> pending.putIfAbsent(location.userId(), location));
+            return 0;
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Directo, sin el monitor: el drenado por clave tolera un flush programado en curso
+        flush();
+    }
+
+    private static List<Object[]> toLocationArgs(List<PendingLocation> locations) {
+        return locations.stream()
+                .map(location -> new Object[]{
+                        UUID.randomUUID().toString(),
+                        location.userId(),
+                        location.longitude(),
+                        location.latitude(),
+                        location.latitude(),
+                        location.longitude(),
+                        location.accuracy(),
+                        Timestamp.valueOf(location.timestamp())})
+                .toList();
+    }
+
+    /**
+     * Ping de ubicación pendiente de persistir
+     */
+    public record PendingLocation(String userId, double latitude, double longitude, double accuracy,
+                                  LocalDateTime timestamp) {
+    }
+}
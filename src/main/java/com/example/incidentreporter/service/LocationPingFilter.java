@@ -0,0 +1,86 @@
+package com.example.incidentreporter.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Descarta pings de ubicación que no aportan movimiento real.
+ * Un ping se suprime si el usuario se movió menos que max(minDistance, accuracy * accuracyFactor)
+ * respecto a la última posición aceptada y no ha pasado maxInterval desde entonces.
+ */
+@Component
+@RequiredArgsConstructor
+public class LocationPingFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${locations.ping-filter.min-distance-meters:25}")
+    private double minDistanceMeters;
+
+    @Value("${locations.ping-filter.accuracy-factor:1.0}")
+    private double accuracyFactor;
+
+    @Value("${locations.ping-filter.max-interval-ms:300000}")
+    private long maxIntervalMs;
+
+    @Value("${locations.ping-filter.maximum-size:100000}")
+    private long maximumSize;
+
+    // Última posición aceptada por usuario; pasado maxInterval la entrada ya no suprime nada
+    private Cache<String, LocationIngestBuffer.PendingLocation> lastAccepted;
+
+    private Counter acceptedCounter;
+    private Counter suppressedCounter;
+
+    @PostConstruct
+    public void init() {
+        lastAccepted = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(maxIntervalMs))
+                .build();
+        acceptedCounter = meterRegistry.counter("locations.pings.accepted");
+        suppressedCounter = meterRegistry.counter("locations.pings.suppressed");
+    }
+
+    /**
+     * Indica si el ping representa un movimiento significativo y, si es así, lo registra como última posición
+     */
+    public boolean accept(LocationIngestBuffer.PendingLocation location) {
+        boolean[] accepted = {true};
+        lastAccepted.asMap().compute(location.userId(), (userId, previous) -> {
+            if (previous != null && !isSignificant(previous, location)) {
+                accepted[0] = false;
+                return previous;
+            }
+            return location;
+        });
+
+        if (accepted[0]) {
+            acceptedCounter.increment();
+        } else {
+            suppressedCounter.increment();
+        }
+        return accepted[0];
+    }
+
+    private boolean isSignificant(LocationIngestBuffer.PendingLocation previous, LocationIngestBuffer.PendingLocation current) {
+        LocalDateTime windowEnd = previous.timestamp().plus(maxIntervalMs, ChronoUnit.MILLIS);
+        if (!current.timestamp().isBefore(windowEnd)) {
+            return true;
+        }
+        // Con GPS impreciso, pequeños saltos son ruido y no movimiento real
+        double threshold = Math.max(minDistanceMeters, Math.max(previous.accuracy(), current.accuracy()) * accuracyFactor);
+        double moved = GeoUtils.distance(previous.latitude(), previous.longitude(), current.latitude(), current.longitude());
+        return moved >= threshold;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.incidentreporter.service;
 
+import com.example.incidentreporter.config.SchedulingConfig;
 import com.example.incidentreporter.dto.LocationDTO;
 import com.example.incidentreporter.dto.UserLocationRequest;
 import com.example.incidentreporter.entity.User;
@@ -7,16 +8,14 @@ import com.example.incidentreporter.entity.UserLocation;
 import com.example.incidentreporter.repository.UserLocationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 
 @Service
@@ -25,12 +24,22 @@ import java.util.Optional;
 public class LocationService {
 
     private final UserLocationRepository userLocationRepository;
-    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+    private final LocationIngestBuffer locationIngestBuffer;
+    private final LocationPingFilter locationPingFilter;
+    private final UserPositionGrid userPositionGrid;
+    private final ScheduledJobMonitor jobMonitor;
+
+    @Value("${locations.cleanup.interval-ms:3600000}")
+    private long cleanupIntervalMs;
+
+    @Value("${locations.cleanup.max-age-ms:3600000}")
+    private long cleanupMaxAgeMs;
 
     /**
-     * Actualiza la ubicación del usuario
+     * Actualiza la ubicación del usuario.
+     * El ping se acumula en el buffer de ingesta y se persiste en el siguiente flush por lotes.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public LocationDTO updateUserLocation(UserLocationRequest request, User currentUser) {
         // Verificar si el usuario tiene habilitado el compartir ubicación
         if (!currentUser.isLocationSharingEnabled()) {
@@ -38,33 +47,22 @@ public class LocationService {
             return null;
         }
 
-        // Desactivar ubicaciones anteriores
-        Optional<UserLocation> activeLocation = userLocationRepository.findActiveLocationByUser(currentUser);
-        activeLocation.ifPresent(location -> {
-            location.setActive(false);
-            userLocationRepository.save(location);
-        });
-
-        // Crear nuevo punto de ubicación
-        Point point = geometryFactory.createPoint(new Coordinate(request.getLongitude(), request.getLatitude()));
-
-        // Crear y guardar nueva ubicación
-        UserLocation userLocation = UserLocation.builder()
-                .user(currentUser)
-                .location(point)
-                .latitude(request.getLatitude())
-                .longitude(request.getLongitude())
-                .accuracy(request.getAccuracy())
-                .timestamp(LocalDateTime.now())
-                .isActive(true)
-                .build();
-
-        userLocation = userLocationRepository.save(userLocation);
+        LocationIngestBuffer.PendingLocation location = new LocationIngestBuffer.PendingLocation(
+                currentUser.getId(),
+                request.getLatitude(),
+                request.getLongitude(),
+                request.getAccuracy() != null ? request.getAccuracy() : 0,
+                LocalDateTime.now());
 
-        // Actualizar última actividad del usuario
-        currentUser.setLastActiveAt(LocalDateTime.now());
+        // Solo los movimientos significativos llegan al buffer de escritura
+        if (locationPingFilter.accept(location)) {
+            locationIngestBuffer.offer(location);
+            userPositionGrid.update(currentUser.getId(), location.latitude(), location.longitude(),
+                    location.timestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                    currentUser.getFcmToken(), currentUser.isNotificationsEnabled(), currentUser.getNotificationRadius());
+        }
 
-        return mapToDTO(userLocation);
+        return mapToDTO(location);
     }
 
     /**
@@ -72,21 +70,39 @@ public class LocationService {
      */
     @Transactional(readOnly = true)
     public LocationDTO getCurrentLocation(User currentUser) {
+        // Un ping aún no persistido es más reciente que la fila activa
+        Optional<LocationIngestBuffer.PendingLocation> pendingLocation = locationIngestBuffer.findPending(currentUser.getId());
+        if (pendingLocation.isPresent()) {
+            return mapToDTO(pendingLocation.get());
+        }
+
         Optional<UserLocation> activeLocation = userLocationRepository.findActiveLocationByUser(currentUser);
         return activeLocation.map(this::mapToDTO).orElse(null);
     }
 
     /**
-     * Limpia ubicaciones antiguas (más de 1 hora)
+     * Limpia ubicaciones antiguas (más de max-age, 1 hora por defecto) con un DELETE en bloque
      */
-    @Scheduled(fixedRate = 3600000) // Cada 1 hora
-    @Transactional
+    @Scheduled(fixedDelayString = "${locations.cleanup.interval-ms:3600000}",
+            scheduler = SchedulingConfig.LOCATION_CLEANUP_SCHEDULER)
     public void cleanOldLocations() {
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-        List<UserLocation> oldLocations = userLocationRepository.findLocationsOlderThan(oneHourAgo);
+        jobMonitor.run("locations.cleanup", cleanupIntervalMs, () -> {
+            int deleted = userLocationRepository.deleteLocationsOlderThan(
+                    LocalDateTime.now().minus(cleanupMaxAgeMs, ChronoUnit.MILLIS));
+            log.info("Cleaned {} old locations", deleted);
+            return deleted;
+        });
+    }
 
-        log.info("Cleaning {} old locations", oldLocations.size());
-        userLocationRepository.deleteAll(oldLocations);
+    private LocationDTO mapToDTO(LocationIngestBuffer.PendingLocation location) {
+        return LocationDTO.builder()
+                .userId(location.userId())
+                .latitude(location.latitude())
+                .longitude(location.longitude())
+                .accuracy(location.accuracy())
+                .timestamp(location.timestamp())
+                .isActive(true)
+                .build();
     }
 
     /**
@@ -0,0 +1,77 @@
+package com.example.incidentreporter.service;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.SendResponse;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Resultado combinado de un envío multicast partido en lotes.
+ * Las respuestas están alineadas con getTokens(); los tokens de lotes que
+ * fallaron por completo se devuelven aparte en getUnsentTokens(). Cada respuesta
+ * guarda además su posición en la lista de tokens pedida, para que el llamador
+ * pueda asociar el resultado a su fila aunque haya tokens repetidos.
+ */
+public class MulticastBatchResponse implements BatchResponse {
+
+    private final List<String> tokens;
+    private final List<SendResponse> responses;
+    private final List<Integer> positions;
+    private final List<String> unsentTokens;
+    private final int successCount;
+
+    /**
+     * Respuesta de un único lote: la posición de cada respuesta es su índice
+     */
+    public MulticastBatchResponse(List<String> tokens, List<SendResponse> responses, List<String> unsentTokens) {
+        this(tokens, responses, IntStream.range(0, responses.size()).boxed().toList(), unsentTokens);
+    }
+
+    public MulticastBatchResponse(List<String> tokens, List<SendResponse> responses, List<Integer> positions,
+                                  List<String> unsentTokens) {
+        this.tokens = List.copyOf(tokens);
+        this.responses = List.copyOf(responses);
+        this.positions = List.copyOf(positions);
+        this.unsentTokens = List.copyOf(unsentTokens);
+        this.successCount = (int) responses.stream().filter(SendResponse::isSuccessful).count();
+    }
+
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    public List<String> getUnsentTokens() {
+        return unsentTokens;
+    }
+
+    /**
+     * Posiciones, en la lista de tokens pedida, de los mensajes que FCM aceptó
+     */
+    public Set<Integer> getDeliveredPositions() {
+        Set<Integer> delivered = new HashSet<>();
+        for (int i = 0; i < responses.size(); i++) {
+            if (responses.get(i).isSuccessful()) {
+                delivered.add(positions.get(i));
+            }
+        }
+        return delivered;
+    }
+
+    @Override
+    public List<SendResponse> getResponses() {
+        return responses;
+    }
+
+    @Override
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    @Override
+    public int getFailureCount() {
+        return responses.size() - successCount;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.entity.Notification;
+import com.example.incidentreporter.enums.NotificationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inserta en lote las notificaciones de un mismo incidente con JDBC batch.
+ * Los IDs se generan en el cliente, así que no hace falta volver a leer las filas;
+ * con reWriteBatchedInserts el driver agrupa cada lote en INSERTs multi-fila.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationBulkWriter {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications (id, user_id, incident_id, title, message, type, status, created_at, delivered_at, " +
+            "push_notification_sent, attempts, next_attempt_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private Counter insertedCounter;
+
+    @PostConstruct
+    public void init() {
+        insertedCounter = meterRegistry.counter("notifications.bulk.inserted");
+    }
+
+    /**
+     * Crea una notificación con el mismo contenido para cada usuario.
+     * Quedan PENDING con el primer intento de push reservado al llamador hasta leaseUntil:
+     * el llamador envía y registra el resultado, y si no llega a hacerlo el dispatcher
+     * las reintenta al vencer la reserva.
+     *
+     * @return IDs generados, en el orden de userIds
+     */
+    public List<String> insert(Collection<String> userIds, String incidentId, NotificationType type,
+                               String title, String message, LocalDateTime leaseUntil) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            rows.add(new Object[]{UUID.randomUUID().toString(), userId});
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp nextAttemptAt = Timestamp.valueOf(leaseUntil);
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setString(1, (String) row[0]);
+            ps.setString(2, (String) row[1]);
+            ps.setString(3, incidentId);
+            ps.setString(4, title);
+            ps.setString(5, message);
+            ps.setString(6, type.name());
+            ps.setString(7, Notification.NotificationStatus.PENDING.name());
+            ps.setTimestamp(8, now);
+            ps.setTimestamp(9, null);
+            ps.setBoolean(10, false);
+            ps.setInt(11, 1);
+            ps.setTimestamp(12, nextAttemptAt);
+        });
+
+        insertedCounter.increment(rows.size());
+        return rows.stream().map(row -> (String) row[0]).toList();
+    }
+}
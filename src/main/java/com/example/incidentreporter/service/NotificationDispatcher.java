@@ -0,0 +1,204 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.config.SchedulingConfig;
+import com.example.incidentreporter.dto.PendingPushView;
+import com.example.incidentreporter.entity.Incident;
+import com.example.incidentreporter.repository.IncidentRepository;
+import com.example.incidentreporter.repository.NotificationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Envía los push de notificaciones que quedaron pendientes (por ejemplo, lotes FCM que fallaron).
+ * Cada lote se reclama con un lease (FOR UPDATE SKIP LOCKED, intento contado y next_attempt_at
+ * aplazado) que se confirma antes de enviar; el envío va fuera de transacción y el resultado se
+ * registra después en otra corta. Los multicast de los distintos incidentes del lote se envían
+ * a la vez (con un máximo en vuelo) y sus resultados se registran juntos. Los fallos se reintentan
+ * con backoff exponencial y, agotados los intentos, la notificación queda FAILED.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class NotificationDispatcher {
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
+    private final IncidentRepository incidentRepository;
+    private final FCMService fcmService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobMonitor jobMonitor;
+
+    @Value("${notifications.dispatch.poll-interval-ms:60000}")
+    private long pollIntervalMs;
+
+    @Value("${notifications.dispatch.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notifications.dispatch.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    // Multicast de incidentes distintos en vuelo a la vez; junto con fcm.client.chunks-per-multicast
+    // conviene que no supere fcm.client.max-in-flight para no esperar por permisos
+    @Value("${notifications.dispatch.concurrency:16}")
+    private int concurrency;
+
+    // Debe cubrir de sobra el envío de un lote (deadline y reintentos del cliente FCM)
+    @Value("${notifications.dispatch.lease-ms:120000}")
+    private long leaseMs;
+
+    private Counter sentCounter;
+    private Counter skippedCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    public void init() {
+        sentCounter = meterRegistry.counter("notifications.dispatch.sent");
+        skippedCounter = meterRegistry.counter("notifications.dispatch.skipped");
+        retriedCounter = meterRegistry.counter("notifications.dispatch.retried");
+        failedCounter = meterRegistry.counter("notifications.dispatch.failed");
+        batchTimer = meterRegistry.timer("notifications.dispatch.batch.duration");
+    }
+
+    /**
+     * Envía notificaciones FCM pendientes
+     */
+    @Scheduled(fixedDelayString = "${notifications.dispatch.poll-interval-ms:60000}",
+            scheduler = SchedulingConfig.NOTIFICATION_DISPATCH_SCHEDULER)
+    public void sendPendingNotifications() {
+        jobMonitor.run("notifications.dispatch", pollIntervalMs, this::dispatchPending);
+    }
+
+    private int dispatchPending() {
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer claimed = batchTimer.record(this::dispatchBatch);
+            if (claimed == null) {
+                break;
+            }
+            total += claimed;
+            if (claimed < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingPushView> claimed = transactionTemplate.execute(status ->
+                notificationRepository.claimPendingPushes(now, now.plus(leaseMs, ChronoUnit.MILLIS), batchSize));
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<String> sentIds = new ArrayList<>();
+        List<String> skippedIds = new ArrayList<>();
+        List<String> failedIds = new ArrayList<>();
+        Map<String, List<PendingPushView>> byIncident = new LinkedHashMap<>();
+        Set<String> invalidTokens = ConcurrentHashMap.newKeySet();
+
+        for (PendingPushView push : claimed) {
+            // Sin token, sin notificaciones o sin incidente no hay push que enviar
+            if (push.getIncidentId() == null || !push.getNotificationsEnabled()
+                    || push.getFcmToken() == null || push.getFcmToken().isEmpty()) {
+                skippedIds.add(push.getId());
+            } else {
+                byIncident.computeIfAbsent(push.getIncidentId(), id -> new ArrayList<>()).add(push);
+            }
+        }
+
+        Map<String, Incident> incidents = incidentRepository.findAllById(byIncident.keySet()).stream()
+                .collect(Collectors.toMap(Incident::getId, Function.identity()));
+
+        List<IncidentPushes> groups = new ArrayList<>(byIncident.size());
+        for (Map.Entry<String, List<PendingPushView>> group : byIncident.entrySet()) {
+            Incident incident = incidents.get(group.getKey());
+            if (incident == null) {
+                group.getValue().forEach(push -> skippedIds.add(push.getId()));
+            } else {
+                groups.add(new IncidentPushes(incident, group.getValue()));
+            }
+        }
+
+        // Un multicast por incidente, todos en paralelo; se espera a que terminen antes de registrar
+        List<Set<Integer>> deliveredByGroup = AsyncLanes.map(groups, concurrency, group ->
+                fcmService.sendToMultipleUsersAsync(group.tokens(), group.incident())
+                        .handle((response, error) -> {
+                            if (error != null) {
+                                log.error("Error dispatching pending pushes for incident {}", group.incident().getId(), error);
+                                return Set.<Integer>of();
+                            }
+                            invalidTokens.addAll(fcmService.findInvalidTokens(response));
+                            return response.getDeliveredPositions();
+                        })).join();
+
+        for (int i = 0; i < groups.size(); i++) {
+            IncidentPushes group = groups.get(i);
+            Set<Integer> delivered = deliveredByGroup.get(i) != null ? deliveredByGroup.get(i) : Set.of();
+            for (PendingPushView push : group.pushes()) {
+                if (delivered.contains(group.positionByToken().get(push.getFcmToken()))) {
+                    sentIds.add(push.getId());
+                } else {
+                    // Se reprograma con backoff; los tokens inválidos se borran abajo
+                    failedIds.add(push.getId());
+                }
+            }
+        }
+
+        // Los tokens inválidos de todos los incidentes se borran en una sola pasada
+        fcmService.clearInvalidTokens(invalidTokens);
+
+        NotificationService.PushOutcome outcome = notificationService.recordPushResults(sentIds, skippedIds, failedIds);
+
+        sentCounter.increment(outcome.delivered());
+        skippedCounter.increment(outcome.skipped());
+        retriedCounter.increment(outcome.retried());
+        failedCounter.increment(outcome.failed());
+        log.info("Dispatched pending pushes: {} sent, {} skipped, {} retrying, {} failed",
+                outcome.delivered(), outcome.skipped(), outcome.retried(), outcome.failed());
+
+        return claimed.size();
+    }
+
+    /**
+     * Pushes pendientes de un incidente; cada token se envía una vez aunque tenga varias filas
+     */
+    private record IncidentPushes(Incident incident, List<PendingPushView> pushes, Map<String, Integer> positionByToken) {
+
+        IncidentPushes(Incident incident, List<PendingPushView> pushes) {
+            this(incident, pushes, positions(pushes));
+        }
+
+        List<String> tokens() {
+            return List.copyOf(positionByToken.keySet());
+        }
+
+        private static Map<String, Integer> positions(List<PendingPushView> pushes) {
+            Map<String, Integer> positionByToken = new LinkedHashMap<>();
+            pushes.forEach(push -> positionByToken.putIfAbsent(push.getFcmToken(), positionByToken.size()));
+            return positionByToken;
+        }
+    }
+}
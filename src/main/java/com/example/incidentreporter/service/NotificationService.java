@@ -1,19 +1,24 @@
 package com.example.incidentreporter.service;
 
+import com.example.incidentreporter.dto.CursorPage;
 import com.example.incidentreporter.entity.Incident;
 import com.example.incidentreporter.entity.Notification;
 import com.example.incidentreporter.entity.User;
 import com.example.incidentreporter.enums.NotificationType;
+import com.example.incidentreporter.exception.InvalidCursorException;
 import com.example.incidentreporter.repository.NotificationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -22,23 +27,35 @@ import java.util.List;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
-    private final FCMService fcmService;
+    private final NotificationBulkWriter notificationBulkWriter;
+
+    private static final String NEW_INCIDENT_TITLE = "⚠️ Nuevo incidente cerca de ti";
+    private static final String INCIDENT_UPDATE_TITLE = "🔄 Actualización de incidente";
+
+    @Value("${notifications.dispatch.max-attempts:5}")
+    private int maxPushAttempts;
+
+    @Value("${notifications.dispatch.retry-backoff-ms:60000}")
+    private long pushRetryBackoffMs;
 
     /**
      * Crea una notificación para un nuevo incidente
      */
     @Transactional
     public Notification createIncidentNotification(User user, Incident incident) {
-        Notification notification = Notification.builder()
-                .user(user)
-                .incident(incident)
-                .title("⚠️ Nuevo incidente cerca de ti")
-                .message(incident.getTitle())
-                .type(NotificationType.NEW_INCIDENT)
-                .status(Notification.NotificationStatus.PENDING)
-                .build();
+        return notificationRepository.save(buildIncidentNotification(user, incident));
+    }
 
-        return notificationRepository.save(notification);
+    /**
+     * Crea en lote las notificaciones de un nuevo incidente, pendientes del push que el
+     * llamador enviará por multicast (reservadas para él hasta leaseUntil)
+     *
+     * @return IDs de las notificaciones creadas, en el orden de userIds
+     */
+    @Transactional
+    public List<String> createIncidentNotifications(Collection<String> userIds, Incident incident, LocalDateTime leaseUntil) {
+        return notificationBulkWriter.insert(userIds, incident.getId(), NotificationType.NEW_INCIDENT,
+                NEW_INCIDENT_TITLE, incident.getTitle(), leaseUntil);
     }
 
     /**
@@ -46,16 +63,42 @@ public class NotificationService {
      */
     @Transactional
     public Notification createIncidentUpdateNotification(User user, Incident incident) {
-        Notification notification = Notification.builder()
-                .user(user)
-                .incident(incident)
-                .title("🔄 Actualización de incidente")
-                .message("El incidente '" + incident.getTitle() + "' ha sido confirmado por varios usuarios")
-                .type(NotificationType.INCIDENT_UPDATE)
-                .status(Notification.NotificationStatus.PENDING)
-                .build();
+        return notificationRepository.save(buildIncidentUpdateNotification(user, incident));
+    }
 
-        return notificationRepository.save(notification);
+    /**
+     * Crea en lote las notificaciones de actualización de un incidente
+     *
+     * @return IDs de las notificaciones creadas, en el orden de userIds
+     */
+    @Transactional
+    public List<String> createIncidentUpdateNotifications(Collection<String> userIds, Incident incident, LocalDateTime leaseUntil) {
+        return notificationBulkWriter.insert(userIds, incident.getId(), NotificationType.INCIDENT_UPDATE,
+                INCIDENT_UPDATE_TITLE, incidentUpdateMessage(incident), leaseUntil);
+    }
+
+    /**
+     * Registra el resultado de un envío de pushes ya reclamados: las entregadas y las descartadas
+     * (sin token o sin incidente) pasan a DELIVERED; las fallidas se reprograman con backoff o,
+     * agotados los intentos, quedan FAILED. Solo toca filas que siguen pendientes de push.
+     */
+    @Transactional
+    public PushOutcome recordPushResults(Collection<String> deliveredIds, Collection<String> skippedIds,
+                                         Collection<String> failedIds) {
+        LocalDateTime now = LocalDateTime.now();
+        int delivered = deliveredIds.isEmpty() ? 0 : notificationRepository.markPushDelivered(deliveredIds, true, now);
+        int skipped = skippedIds.isEmpty() ? 0 : notificationRepository.markPushDelivered(skippedIds, false, now);
+
+        int failed = 0;
+        int retried = 0;
+        if (!failedIds.isEmpty()) {
+            failed = notificationRepository.markPushFailed(failedIds, maxPushAttempts);
+            retried = notificationRepository.reschedulePush(failedIds, now, pushRetryBackoffMs / 1000.0);
+        }
+        if (failed > 0) {
+            log.warn("{} notifications marked FAILED after {} push attempts", failed, maxPushAttempts);
+        }
+        return new PushOutcome(delivered, skipped, retried, failed);
     }
 
     /**
@@ -82,6 +125,43 @@ public class NotificationService {
         return notificationRepository.findByUserOrderByCreatedAtDesc(user, pageable);
     }
 
+    /**
+     * Obtiene las notificaciones de un usuario paginando por cursor (createdAt + id)
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Notification> getUserNotifications(User user, String cursor, int size) {
+        int pageSize = Cursors.pageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Notification> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = notificationRepository.findFirstPageByUser(user, limit);
+        } else {
+            String[] parts = Cursors.decode(cursor, 2);
+            LocalDateTime createdAt;
+            try {
+                createdAt = LocalDateTime.parse(parts[0]);
+            } catch (DateTimeParseException e) {
+                throw new InvalidCursorException("Cursor inválido");
+            }
+            rows = notificationRepository.findPageByUserAfter(user, createdAt, parts[1], limit);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        List<Notification> content = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            Notification last = content.get(content.size() - 1);
+            nextCursor = Cursors.encode(last.getCreatedAt().toString(), last.getId());
+        }
+
+        return CursorPage.<Notification>builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+
     /**
      * Marca una notificación como leída
      */
@@ -101,52 +181,35 @@ public class NotificationService {
         return notificationRepository.save(notification);
     }
 
-    /**
-     * Envía notificaciones FCM pendientes
-     */
-    @Scheduled(fixedRate = 60000) // Cada 1 minuto
-    @Transactional
-    public void sendPendingNotifications() {
-        List<Notification> pendingNotifications = notificationRepository.findByStatusAndPushNotificationSent(
-                Notification.NotificationStatus.PENDING, false);
-
-        for (Notification notification : pendingNotifications) {
-            User user = notification.getUser();
-
-            // Verificar que el usuario tiene token FCM y notificaciones habilitadas
-            if (user.getFcmToken() == null || user.getFcmToken().isEmpty() || !user.isNotificationsEnabled()) {
-                // Marcar como entregada aunque no se envíe (para evitar reintentos)
-                notification.setStatus(Notification.NotificationStatus.DELIVERED);
-                notification.setDeliveredAt(LocalDateTime.now());
-                notificationRepository.save(notification);
-                continue;
-            }
+    private Notification buildIncidentNotification(User user, Incident incident) {
+        return Notification.builder()
+                .user(user)
+                .incident(incident)
+                .title(NEW_INCIDENT_TITLE)
+                .message(incident.getTitle())
+                .type(NotificationType.NEW_INCIDENT)
+                .status(Notification.NotificationStatus.PENDING)
+                .build();
+    }
 
-            try {
-                // Enviar notificación FCM
-                if (notification.getIncident() != null) {
-                    // Si es de incidente, usar FCM con datos geoespaciales
-                    fcmService.sendIncidentNotification(
-                            user.getFcmToken(),
-                            notification.getIncident(),
-                            user.getLocations().isEmpty() ? 0 : user.getLocations().get(0).getLatitude(),
-                            user.getLocations().isEmpty() ? 0 : user.getLocations().get(0).getLongitude()
-                    );
-                } else {
-                    // Si es del sistema, usar FCM básico
-                    // (aquí podrías implementar otro método en FCMService para notificaciones simples)
-                }
-
-                // Marcar como enviada y entregada
-                notification.setPushNotificationSent(true);
-                notification.setStatus(Notification.NotificationStatus.DELIVERED);
-                notification.setDeliveredAt(LocalDateTime.now());
-            } catch (Exception e) {
-                log.error("Error sending FCM notification", e);
-                // No marcar como enviada para reintentar después
-            }
+    private Notification buildIncidentUpdateNotification(User user, Incident incident) {
+        return Notification.builder()
+                .user(user)
+                .incident(incident)
+                .title(INCIDENT_UPDATE_TITLE)
+                .message(incidentUpdateMessage(incident))
+                .type(NotificationType.INCIDENT_UPDATE)
+                .status(Notification.NotificationStatus.PENDING)
+                .build();
+    }
 
-            notificationRepository.save(notification);
-        }
+    private static String incidentUpdateMessage(Incident incident) {
+        return "El incidente '" + incident.getTitle() + "' ha sido confirmado por varios usuarios";
+    }
+
+    /**
+     * Filas afectadas al registrar el resultado de un envío de pushes
+     */
+    public record PushOutcome(int delivered, int skipped, int retried, int failed) {
     }
-}
\ No newline at end of file
+}
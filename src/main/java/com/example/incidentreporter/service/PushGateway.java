@@ -0,0 +1,23 @@
+package com.example.incidentreporter.service;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MulticastMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Punto de salida hacia el proveedor de push. Permite sustituir FirebaseMessaging
+ * por un doble local en pruebas y benchmarks.
+ * Todas las operaciones son asíncronas: los fallos de FCM completan el futuro con
+ * FirebaseMessagingException.
+ */
+public interface PushGateway {
+
+    CompletableFuture<String> sendAsync(Message message, boolean dryRun);
+
+    CompletableFuture<BatchResponse> sendEachAsync(List<Message> messages, boolean dryRun);
+
+    CompletableFuture<BatchResponse> sendEachForMulticastAsync(MulticastMessage message);
+}
@@ -0,0 +1,94 @@
+package com.example.incidentreporter.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+
+/**
+ * Envoltorio común de los jobs programados.
+ * Evita que un job se solape consigo mismo (p. ej. una invocación manual o de apagado
+ * mientras corre la programada) y registra por job la duración, el retraso sobre la
+ * cadencia configurada y las filas procesadas.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ScheduledJobMonitor {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, JobState> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Ejecuta el job si no hay otra ejecución en curso
+     *
+     * @param job        nombre del job, usado como tag de las métricas
+     * @param intervalMs pausa configurada entre ejecuciones (fixedDelay), para medir el retraso
+     * @param task       trabajo a ejecutar; devuelve las filas procesadas
+     * @return false si se omitió por solaparse con otra ejecución
+     */
+    public boolean run(String job, long intervalMs, IntSupplier task) {
+        JobState state = jobs.computeIfAbsent(job, this::createState);
+        if (!state.running.compareAndSet(false, true)) {
+            state.skipped.increment();
+            log.warn("Skipping job {}: previous run still in progress", job);
+            return false;
+        }
+
+        long startMillis = System.currentTimeMillis();
+        if (state.lastFinishedAt > 0) {
+            long lag = startMillis - (state.lastFinishedAt + intervalMs);
+            state.lag.record(Math.max(0, lag), TimeUnit.MILLISECONDS);
+        }
+
+        long start = System.nanoTime();
+        try {
+            state.rows.record(task.getAsInt());
+        } catch (Exception e) {
+            state.failures.increment();
+            log.error("Scheduled job {} failed", job, e);
+        } finally {
+            state.duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            state.lastFinishedAt = System.currentTimeMillis();
+            state.running.set(false);
+        }
+        return true;
+    }
+
+    private JobState createState(String job) {
+        return new JobState(
+                meterRegistry.timer("scheduled.job.duration", "job", job),
+                meterRegistry.timer("scheduled.job.lag", "job", job),
+                meterRegistry.summary("scheduled.job.rows", "job", job),
+                meterRegistry.counter("scheduled.job.skipped", "job", job),
+                meterRegistry.counter("scheduled.job.failures", "job", job));
+    }
+
+    private static final class JobState {
+        private final AtomicBoolean running = new AtomicBoolean(false);
+        private final Timer duration;
+        private final Timer lag;
+        private final DistributionSummary rows;
+        private final Counter skipped;
+        private final Counter failures;
+        private volatile long lastFinishedAt;
+
+        private JobState(Timer duration, Timer lag, DistributionSummary rows, Counter skipped, Counter failures) {
+            this.duration = duration;
+            this.lag = lag;
+            this.rows = rows;
+            this.skipped = skipped;
+            this.failures = failures;
+        }
+    }
+}
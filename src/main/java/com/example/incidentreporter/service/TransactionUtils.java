@@ -0,0 +1,29 @@
+package com.example.incidentreporter.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilidades para ejecutar acciones ligadas al ciclo de vida de la transacción actual
+ */
+final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Ejecuta la acción cuando la transacción actual confirme, o inmediatamente si no hay transacción
+     */
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
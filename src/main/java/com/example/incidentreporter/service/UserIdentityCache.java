@@ -0,0 +1,93 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Caché acotada auth0Id -> identidad del usuario (id, auth0Id, email).
+ * Guarda solo datos inmutables para no compartir entidades JPA entre peticiones.
+ * Los usuarios no registrados se recuerdan poco tiempo (negativeTtlSeconds) para no consultar
+ * la base de datos en cada petición; el alta invalida la entrada al confirmar.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserIdentityCache {
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.user-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${auth.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${auth.user-cache.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    private Cache<String, Optional<UserIdentity>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<UserIdentity>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<UserIdentity> identity, long currentTime) {
+                        return Duration.ofSeconds(identity.isPresent() ? ttlSeconds : negativeTtlSeconds).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<UserIdentity> identity, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<UserIdentity> identity, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.identity");
+    }
+
+    /**
+     * Resuelve la identidad del usuario, consultando la base de datos solo en caso de fallo de caché
+     */
+    public Optional<UserIdentity> find(String auth0Id) {
+        if (auth0Id == null) {
+            return Optional.empty();
+        }
+        return cache.get(auth0Id, key -> userRepository.findByAuth0Id(key)
+                .map(user -> new UserIdentity(user.getId(), user.getAuth0Id(), user.getEmail())));
+    }
+
+    /**
+     * Descarta la entrada del usuario cuando la transacción actual confirme
+     */
+    public void invalidateAfterCommit(String auth0Id) {
+        if (auth0Id != null) {
+            TransactionUtils.afterCommit(() -> cache.invalidate(auth0Id));
+        }
+    }
+
+    /**
+     * Identidad inmutable de un usuario autenticado
+     */
+    public record UserIdentity(String id, String auth0Id, String email) {
+    }
+}
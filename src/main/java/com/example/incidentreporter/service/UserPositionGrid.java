@@ -0,0 +1,458 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.config.SchedulingConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Malla en memoria con la última posición de cada usuario, para resolver destinatarios
+ * de notificaciones sin consultar user_locations.
+ * Cada usuario tiene un ordinal fijo que indexa arrays primitivos (posición, último ping,
+ * flags, token). Las lecturas no toman locks; las escrituras se serializan por franjas de ordinales.
+ * Mientras no se haya reconstruido desde la base de datos las consultas deben usar el repositorio.
+ * Cada nodo tiene su propia malla: los cambios hechos en otros nodos se incorporan con una
+ * resincronización periódica por ul.timestamp y users.updated_at.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class UserPositionGrid {
+
+    // ~1.1 km de latitud por celda
+    private static final double CELL_SIZE_DEGREES = 0.01;
+    private static final int LONGITUDE_CELLS = GeoUtils.longitudeCells(CELL_SIZE_DEGREES);
+    private static final int STRIPES = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final byte FLAG_POSITIONED = 1;
+    private static final byte FLAG_NOTIFICATIONS = 2;
+
+    private static final String REBUILD_SQL =
+            "SELECT u.id, u.fcm_token, u.notifications_enabled, u.notification_radius, " +
+            "ul.latitude, ul.longitude, ul.timestamp " +
+            "FROM user_locations ul JOIN users u ON u.id = ul.user_id " +
+            "WHERE ul.is_active = true";
+
+    // Posiciones nuevas o perfiles modificados (token, radio, notificaciones) desde la marca indicada
+    private static final String SYNC_SQL =
+            REBUILD_SQL + " AND ul.timestamp > ? " +
+            "UNION " +
+            REBUILD_SQL + " AND u.updated_at > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduledJobMonitor jobMonitor;
+
+    @Value("${locations.grid.enabled:true}")
+    private boolean enabled;
+
+    // Igual que la limpieza de ubicaciones: una posición más antigua ya no se considera activa
+    @Value("${locations.grid.max-age-ms:3600000}")
+    private long maxAgeMs;
+
+    @Value("${locations.grid.sync-interval-ms:15000}")
+    private long syncIntervalMs;
+
+    // Margen hacia atrás en cada lectura: cubre pings que llegan a la tabla con retraso
+    // (buffer de ingesta) y transacciones que confirman después de iniciar la lectura
+    @Value("${locations.grid.sync-overlap-ms:60000}")
+    private long syncOverlapMs;
+
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final Map<Long, Bucket> cells = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = createStripes();
+    private final Object growLock = new Object();
+    private final AtomicBoolean ready = new AtomicBoolean(false);
+
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    // Inicio de la última lectura completa o incremental desde la base de datos
+    private volatile LocalDateTime syncedUntil;
+    // Protegido por growLock
+    private int size;
+
+    /**
+     * Indica si la malla está cargada y puede responder consultas
+     */
+    public boolean isReady() {
+        return enabled && ready.get();
+    }
+
+    /**
+     * Reconstruye la malla con las ubicaciones activas al arrancar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            jdbcTemplate.query(REBUILD_SQL, updateRow());
+            syncedUntil = startedAt;
+            ready.set(true);
+            log.info("User position grid loaded with {} users", ordinals.size());
+        } catch (Exception e) {
+            log.error("Error loading user position grid, falling back to database queries", e);
+        }
+    }
+
+    /**
+     * Incorpora las posiciones y perfiles modificados en cualquier nodo desde la última lectura
+     */
+    @Scheduled(fixedDelayString = "${locations.grid.sync-interval-ms:15000}",
+            scheduler = SchedulingConfig.GRID_SYNC_SCHEDULER)
+    public void sync() {
+        if (!isReady() || syncedUntil == null) {
+            return;
+        }
+        jobMonitor.run("locations.grid.sync", syncIntervalMs, () -> {
+            LocalDateTime startedAt = LocalDateTime.now();
+            Timestamp since = Timestamp.valueOf(syncedUntil.minus(syncOverlapMs, ChronoUnit.MILLIS));
+            int[] rows = new int[1];
+            RowCallbackHandler handler = updateRow();
+            jdbcTemplate.query(SYNC_SQL, rs -> {
+                handler.processRow(rs);
+                // El perfil se aplica aunque la malla tenga un ping local más reciente que la fila
+                updateProfile(rs.getString("id"), rs.getString("fcm_token"),
+                        rs.getBoolean("notifications_enabled"), rs.getDouble("notification_radius"));
+                rows[0]++;
+            }, since, since);
+            syncedUntil = startedAt;
+            return rows[0];
+        });
+    }
+
+    // Las filas repetidas por el solapamiento son idempotentes: update() descarta posiciones más antiguas
+    private RowCallbackHandler updateRow() {
+        return rs -> {
+            Timestamp timestamp = rs.getTimestamp("timestamp");
+            update(rs.getString("id"),
+                    rs.getDouble("latitude"),
+                    rs.getDouble("longitude"),
+                    timestamp != null ? timestamp.getTime() : 0,
+                    rs.getString("fcm_token"),
+                    rs.getBoolean("notifications_enabled"),
+                    rs.getDouble("notification_radius"));
+        };
+    }
+
+    /**
+     * Registra la posición y el perfil de notificación de un usuario.
+     * Una posición más antigua que la registrada se ignora.
+     */
+    public void update(String userId, double latitude, double longitude, long timestampMillis,
+                       String fcmToken, boolean notificationsEnabled, double notificationRadius) {
+        if (!enabled) {
+            return;
+        }
+        int ordinal = ordinalFor(userId);
+        ReentrantLock lock = stripeFor(ordinal);
+        lock.lock();
+        try {
+            Columns c = columns;
+            boolean positioned = (c.flags[ordinal] & FLAG_POSITIONED) != 0;
+            if (positioned && c.lastSeen[ordinal] > timestampMillis) {
+                return;
+            }
+
+            long oldCell = c.cells[ordinal];
+            long newCell = cellKey(latitude, longitude);
+            c.latitudes[ordinal] = latitude;
+            c.longitudes[ordinal] = longitude;
+            c.lastSeen[ordinal] = timestampMillis;
+            c.tokens[ordinal] = fcmToken;
+            c.radii[ordinal] = notificationRadius;
+            c.cells[ordinal] = newCell;
+            c.flags[ordinal] = (byte) (FLAG_POSITIONED | (notificationsEnabled ? FLAG_NOTIFICATIONS : 0));
+
+            if (!positioned) {
+                addToCell(newCell, ordinal);
+            } else if (oldCell != newCell) {
+                removeFromCell(oldCell, ordinal);
+                addToCell(newCell, ordinal);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Actualiza el perfil de notificación de un usuario ya presente en la malla
+     */
+    public void updateProfile(String userId, String fcmToken, boolean notificationsEnabled, double notificationRadius) {
+        Integer ordinal = ordinals.get(userId);
+        if (ordinal == null) {
+            return;
+        }
+        ReentrantLock lock = stripeFor(ordinal);
+        lock.lock();
+        try {
+            Columns c = columns;
+            c.tokens[ordinal] = fcmToken;
+            c.radii[ordinal] = notificationRadius;
+            c.flags[ordinal] = (byte) ((c.flags[ordinal] & FLAG_POSITIONED) | (notificationsEnabled ? FLAG_NOTIFICATIONS : 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Actualiza el perfil de notificación cuando la transacción actual confirme
+     */
+    public void updateProfileAfterCommit(String userId, String fcmToken, boolean notificationsEnabled,
+                                         double notificationRadius) {
+        TransactionUtils.afterCommit(() -> updateProfile(userId, fcmToken, notificationsEnabled, notificationRadius));
+    }
+
+    /**
+     * Elimina de la malla los tokens FCM invalidados
+     */
+    public void clearTokens(Collection<String> fcmTokens) {
+        if (fcmTokens.isEmpty() || ordinals.isEmpty()) {
+            return;
+        }
+        Set<String> invalid = new HashSet<>(fcmTokens);
+        Columns snapshot = columns;
+        int limit = Math.min(ordinals.size(), snapshot.tokens.length);
+        for (int ordinal = 0; ordinal < limit; ordinal++) {
+            if (snapshot.tokens[ordinal] == null || !invalid.contains(snapshot.tokens[ordinal])) {
+                continue;
+            }
+            ReentrantLock lock = stripeFor(ordinal);
+            lock.lock();
+            try {
+                Columns c = columns;
+                if (c.tokens[ordinal] != null && invalid.contains(c.tokens[ordinal])) {
+                    c.tokens[ordinal] = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Busca usuarios con notificaciones habilitadas y token FCM a menos de
+     * min(radius, radio de notificación del usuario)
+     */
+    public List<Recipient> findRecipients(double latitude, double longitude, double radius, String excludedUserId) {
+        double latDelta = GeoUtils.latitudeDelta(radius);
+        double lonDelta = GeoUtils.longitudeDelta(radius, latitude);
+        int minLat = cellIndex(latitude - latDelta);
+        int maxLat = cellIndex(latitude + latDelta);
+        int minLon = cellIndex(longitude - lonDelta);
+        int maxLon = cellIndex(longitude + lonDelta);
+        // Cerca del antimeridiano el rango se continúa en el otro extremo; nunca más de una vuelta
+        int lonSpan = Math.min(maxLon - minLon, LONGITUDE_CELLS - 1);
+
+        Columns c = columns;
+        long activeSince = System.currentTimeMillis() - maxAgeMs;
+        List<Recipient> recipients = new ArrayList<>();
+        long cellCount = (long) (maxLat - minLat + 1) * (lonSpan + 1);
+
+        if (cellCount > cells.size()) {
+            // Radio grande: es más barato recorrer solo las celdas ocupadas
+            cells.forEach((key, bucket) -> {
+                int latIndex = (int) (key >> 32);
+                int lonIndex = key.intValue();
+                if (latIndex >= minLat && latIndex <= maxLat
+                        && GeoUtils.inLongitudeCellRange(lonIndex, minLon, maxLon, LONGITUDE_CELLS)) {
+                    collect(c, bucket.members, latitude, longitude, radius, activeSince, excludedUserId, recipients);
+                }
+            });
+        } else {
+            for (int latIndex = minLat; latIndex <= maxLat; latIndex++) {
+                for (int offset = 0; offset <= lonSpan; offset++) {
+                    int lonIndex = GeoUtils.wrapLongitudeCell(minLon + offset, LONGITUDE_CELLS);
+                    Bucket bucket = cells.get(cellKey(latIndex, lonIndex));
+                    if (bucket != null) {
+                        collect(c, bucket.members, latitude, longitude, radius, activeSince, excludedUserId, recipients);
+                    }
+                }
+            }
+        }
+        return recipients;
+    }
+
+    private static void collect(Columns c, int[] members, double latitude, double longitude, double radius,
+                                long activeSince, String excludedUserId, List<Recipient> recipients) {
+        for (int ordinal : members) {
+            // Un ordinal recién creado puede no existir aún en una copia anterior de las columnas
+            if (ordinal >= c.flags.length) {
+                continue;
+            }
+            if (c.flags[ordinal] != (FLAG_POSITIONED | FLAG_NOTIFICATIONS) || c.lastSeen[ordinal] < activeSince) {
+                continue;
+            }
+            String token = c.tokens[ordinal];
+            if (token == null || token.isEmpty() || c.userIds[ordinal].equals(excludedUserId)) {
+                continue;
+            }
+            // Cada usuario solo quiere avisos dentro de su propio radio de notificación
+            double effectiveRadius = Math.min(radius, c.radii[ordinal]);
+            if (GeoUtils.distance(latitude, longitude, c.latitudes[ordinal], c.longitudes[ordinal]) <= effectiveRadius) {
+                recipients.add(new Recipient(c.userIds[ordinal], token));
+            }
+        }
+    }
+
+    private int ordinalFor(String userId) {
+        Integer ordinal = ordinals.get(userId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (growLock) {
+            ordinal = ordinals.get(userId);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            if (size == columns.userIds.length) {
+                grow();
+            }
+            int assigned = size++;
+            columns.userIds[assigned] = userId;
+            ordinals.put(userId, assigned);
+            return assigned;
+        }
+    }
+
+    // Se llama con growLock tomado; bloquea todas las franjas para copiar un estado consistente
+    private void grow() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            columns = columns.copyOf(columns.userIds.length * 2);
+        } finally {
+            for (ReentrantLock stripe : stripes) {
+                stripe.unlock();
+            }
+        }
+    }
+
+    private ReentrantLock stripeFor(int ordinal) {
+        return stripes[ordinal % STRIPES];
+    }
+
+    private void addToCell(long cellKey, int ordinal) {
+        cells.computeIfAbsent(cellKey, key -> new Bucket()).add(ordinal);
+    }
+
+    private void removeFromCell(long cellKey, int ordinal) {
+        Bucket bucket = cells.get(cellKey);
+        if (bucket != null) {
+            bucket.remove(ordinal);
+        }
+    }
+
+    private static ReentrantLock[] createStripes() {
+        ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private static int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / CELL_SIZE_DEGREES);
+    }
+
+    private static long cellKey(double latitude, double longitude) {
+        return cellKey(cellIndex(latitude), GeoUtils.wrapLongitudeCell(cellIndex(longitude), LONGITUDE_CELLS));
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    /**
+     * Destinatario resuelto por la malla
+     */
+    public record Recipient(String userId, String fcmToken) {
+    }
+
+    /**
+     * Columnas indexadas por ordinal de usuario
+     */
+    private static final class Columns {
+        final String[] userIds;
+        final double[] latitudes;
+        final double[] longitudes;
+        final long[] lastSeen;
+        final double[] radii;
+        final long[] cells;
+        final byte[] flags;
+        final String[] tokens;
+
+        Columns(int capacity) {
+            this(new String[capacity], new double[capacity], new double[capacity], new long[capacity],
+                    new double[capacity], new long[capacity], new byte[capacity], new String[capacity]);
+        }
+
+        private Columns(String[] userIds, double[] latitudes, double[] longitudes, long[] lastSeen,
+                        double[] radii, long[] cells, byte[] flags, String[] tokens) {
+            this.userIds = userIds;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.lastSeen = lastSeen;
+            this.radii = radii;
+            this.cells = cells;
+            this.flags = flags;
+            this.tokens = tokens;
+        }
+
+        Columns copyOf(int capacity) {
+            return new Columns(Arrays.copyOf(userIds, capacity), Arrays.copyOf(latitudes, capacity),
+                    Arrays.copyOf(longitudes, capacity), Arrays.copyOf(lastSeen, capacity),
+                    Arrays.copyOf(radii, capacity), Arrays.copyOf(cells, capacity),
+                    Arrays.copyOf(flags, capacity), Arrays.copyOf(tokens, capacity));
+        }
+    }
+
+    /**
+     * Ordinales de una celda. Copia en escritura: los lectores recorren el array sin locks.
+     */
+    private static final class Bucket {
+        volatile int[] members = new int[0];
+
+        synchronized void add(int ordinal) {
+            int[] current = members;
+            int[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = ordinal;
+            members = updated;
+        }
+
+        synchronized void remove(int ordinal) {
+            int[] current = members;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == ordinal) {
+                    int[] updated = new int[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    members = updated;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -4,13 +4,14 @@ import com.example.incidentreporter.dto.UserDTO;
 import com.example.incidentreporter.entity.User;
 import com.example.incidentreporter.exception.EntityNotFoundException;
 import com.example.incidentreporter.repository.UserRepository;
+import com.example.incidentreporter.security.UserPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -18,7 +19,14 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class UserService {
 
+    // verificationScore = BASE_SCORE + confirmaciones recibidas * 1 + negaciones recibidas * -2, acotado a 0-100
+    private static final double BASE_SCORE = 50.0;
+    private static final double SCORE_PER_CONFIRMATION = 1.0;
+    private static final double SCORE_PER_DENIAL = -2.0;
+
     private final UserRepository userRepository;
+    private final UserIdentityCache userIdentityCache;
+    private final UserPositionGrid userPositionGrid;
     // SOLUCIÓN: Inyección lazy para evitar dependencia circular
     @Lazy
     private final FCMService fcmService;
@@ -41,6 +49,22 @@ public class UserService {
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado con Auth0ID: " + auth0Id));
     }
 
+    /**
+     * Obtiene el usuario autenticado como referencia sin consultar la base de datos; los campos
+     * se cargan solo si se usan. El ID sale del filtro o, si no lo resolvió, de la caché de
+     * identidades, que también recuerda a los usuarios no registrados.
+     */
+    @Transactional(readOnly = true)
+    public User getCurrentUser(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof UserPrincipal principal && principal.getUserId() != null) {
+            return userRepository.getReferenceById(principal.getUserId());
+        }
+        String auth0Id = authentication.getName();
+        return userIdentityCache.find(auth0Id)
+                .map(identity -> userRepository.getReferenceById(identity.id()))
+                .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado con Auth0ID: " + auth0Id));
+    }
+
     /**
      * Obtiene o crea un usuario basado en información de Auth0
      */
@@ -58,6 +82,8 @@ public class UserService {
                 .email(email)
                 .build();
 
+        // Descarta el fallo cacheado mientras el usuario no existía
+        userIdentityCache.invalidateAfterCommit(auth0Id);
         return userRepository.save(newUser);
     }
 
@@ -66,7 +92,35 @@ public class UserService {
      */
     @Transactional
     public User saveUser(User user) {
-        return userRepository.save(user);
+        userIdentityCache.invalidateAfterCommit(user.getAuth0Id());
+        User savedUser = userRepository.save(user);
+        refreshPositionGrid(savedUser);
+        return savedUser;
+    }
+
+    /**
+     * Suma un incidente reportado con un UPDATE puntual, sin reescribir la entidad
+     */
+    @Transactional
+    public void recordIncidentReported(String userId) {
+        userRepository.incrementTotalIncidentsReported(userId);
+    }
+
+    /**
+     * Aplica el resultado de una confirmación sobre las estadísticas: el votante suma o resta
+     * confirmaciones y el autor suma o resta votos recibidos, de los que se recalcula su puntuación.
+     * Los votos del autor sobre su propio incidente no cuentan para su puntuación.
+     */
+    @Transactional
+    public void recordConfirmationOutcome(String voterId, String reporterId, int confirmationDelta, int denialDelta) {
+        if (confirmationDelta != 0) {
+            userRepository.incrementTotalConfirmations(voterId, confirmationDelta);
+        }
+
+        if ((confirmationDelta != 0 || denialDelta != 0) && reporterId != null && !reporterId.equals(voterId)) {
+            userRepository.applyReceivedVotes(reporterId, confirmationDelta, denialDelta,
+                    BASE_SCORE, SCORE_PER_CONFIRMATION, SCORE_PER_DENIAL);
+        }
     }
 
     /**
@@ -86,7 +140,10 @@ public class UserService {
 
         // Actualizar token (la validación la haremos en el controlador si es necesario)
         user.setFcmToken(fcmToken);
-        return userRepository.save(user);
+        userIdentityCache.invalidateAfterCommit(auth0Id);
+        User savedUser = userRepository.save(user);
+        refreshPositionGrid(savedUser);
+        return savedUser;
     }
 
     /**
@@ -100,27 +157,11 @@ public class UserService {
         user.setNotificationRadius(notificationRadius);
 
         User savedUser = userRepository.save(user);
+        userIdentityCache.invalidateAfterCommit(savedUser.getAuth0Id());
+        refreshPositionGrid(savedUser);
         return mapToDTO(savedUser);
     }
 
-    /**
-     * Encuentra usuarios con token FCM
-     */
-    @Transactional(readOnly = true)
-    public List<User> findUsersWithFCMToken() {
-        return userRepository.findAll().stream()
-                .filter(user -> user.getFcmToken() != null && !user.getFcmToken().isEmpty())
-                .toList();
-    }
-
-    /**
-     * Encuentra usuario por token FCM
-     */
-    @Transactional(readOnly = true)
-    public Optional<User> findByFcmToken(String fcmToken) {
-        return userRepository.findByFcmToken(fcmToken);
-    }
-
     /**
      * Valida un token FCM usando el servicio FCM
      * Método público para uso externo cuando sea necesario
@@ -134,6 +175,11 @@ public class UserService {
         }
     }
 
+    private void refreshPositionGrid(User user) {
+        userPositionGrid.updateProfileAfterCommit(user.getId(), user.getFcmToken(),
+                user.isNotificationsEnabled(), user.getNotificationRadius());
+    }
+
     /**
      * Convierte una entidad User a un DTO
      */
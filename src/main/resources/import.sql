@@ -0,0 +1,12 @@
+-- Indices espaciales (Hibernate ejecuta este script tras crear el esquema)
+CREATE INDEX IF NOT EXISTS idx_incidents_location ON incidents USING GIST (location);
+CREATE INDEX IF NOT EXISTS idx_incidents_active_geography ON incidents USING GIST ((CAST(location AS geography))) WHERE status = 'ACTIVE';
+CREATE INDEX IF NOT EXISTS idx_user_locations_location ON user_locations USING GIST (location);
+CREATE INDEX IF NOT EXISTS idx_user_locations_active_geography ON user_locations USING GIST ((CAST(location AS geography))) WHERE is_active = true;
+CREATE INDEX IF NOT EXISTS idx_incidents_active_expires_at ON incidents (expires_at) WHERE status = 'ACTIVE';
+CREATE UNIQUE INDEX IF NOT EXISTS uq_user_locations_active_user ON user_locations (user_id) WHERE is_active = true;
+CREATE INDEX IF NOT EXISTS idx_notifications_pending_push ON notifications (next_attempt_at) WHERE status = 'PENDING' AND push_notification_sent = false;
+CREATE INDEX IF NOT EXISTS idx_incidents_updated_at ON incidents (updated_at);
+CREATE INDEX IF NOT EXISTS idx_notifications_incident_type_user ON notifications (incident_id, type, user_id);
+CREATE INDEX IF NOT EXISTS idx_user_locations_active_timestamp ON user_locations (timestamp) WHERE is_active = true;
+CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users (updated_at);
@@ -0,0 +1,112 @@
+package com.example.incidentreporter.repository;
+
+import com.example.incidentreporter.support.BenchmarkData;
+import com.example.incidentreporter.support.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de las consultas por radio frente al número de filas (10k, 100k y 1M incidentes
+ * y ubicaciones), comparando ST_DWithin sobre geography con índice GiST contra el filtro
+ * anterior ST_DistanceSphere(...) &lt;= radio, que obliga a recorrer la tabla completa.
+ * Requiere Docker. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.repository.SpatialQueryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialQueryBenchmark {
+
+    private static final double LATITUDE = 4.65;
+    private static final double LONGITUDE = -74.08;
+    // ~111 km de lado: con 1M filas un radio de 1 km devuelve unos cientos
+    private static final double SPREAD_DEGREES = 1.0;
+    private static final double RADIUS_METERS = 1000;
+
+    private static final String LEGACY_INCIDENT_FILTER = "WHERE i.status = 'ACTIVE' " +
+            "AND ST_DistanceSphere(i.location, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)) <= :radius ";
+
+    private static final String LEGACY_RECIPIENTS_SQL = "SELECT DISTINCT u.id, u.fcm_token FROM users u " +
+            "JOIN user_locations ul ON ul.user_id = u.id " +
+            "WHERE ul.is_active = true " +
+            "AND ST_DistanceSphere(ul.location, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)) <= :radius " +
+            "AND u.notifications_enabled = true AND u.fcm_token IS NOT NULL AND u.id <> :excludedUserId";
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private BenchmarkDatabase database;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private MapSqlParameterSource parameters;
+    private String incidentsSql;
+    private String legacyIncidentsSql;
+    private String recipientsSql;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        BenchmarkData.seedUsersWithLocations(database.jdbcTemplate(), rows, LATITUDE, LONGITUDE, SPREAD_DEGREES);
+        BenchmarkData.seedIncidents(database.jdbcTemplate(), "user-1", rows, LATITUDE, LONGITUDE, SPREAD_DEGREES);
+
+        jdbcTemplate = database.namedParameterJdbcTemplate();
+        parameters = new MapSqlParameterSource()
+                .addValue("latitude", LATITUDE)
+                .addValue("longitude", LONGITUDE)
+                .addValue("radius", RADIUS_METERS)
+                .addValue("userId", "user-1")
+                .addValue("excludedUserId", "user-1");
+        incidentsSql = BenchmarkDatabase.nativeQuery(IncidentRepository.class, "findIncidentsWithinRadius");
+        legacyIncidentsSql = IncidentRepository.NEARBY_SELECT + LEGACY_INCIDENT_FILTER + "ORDER BY distance ASC, i.id ASC";
+        recipientsSql = BenchmarkDatabase.nativeQuery(UserLocationRepository.class, "findRecipientsWithinRadius");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int incidentsWithinRadius() {
+        return jdbcTemplate.queryForList(incidentsSql, parameters).size();
+    }
+
+    @Benchmark
+    public int incidentsWithinRadiusDistanceSphere() {
+        return jdbcTemplate.queryForList(legacyIncidentsSql, parameters).size();
+    }
+
+    @Benchmark
+    public int recipientsWithinRadius() {
+        return jdbcTemplate.queryForList(recipientsSql, parameters).size();
+    }
+
+    @Benchmark
+    public int recipientsWithinRadiusDistanceSphere() {
+        return jdbcTemplate.queryForList(LEGACY_RECIPIENTS_SQL, parameters).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SpatialQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
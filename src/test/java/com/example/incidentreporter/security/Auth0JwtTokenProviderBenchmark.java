@@ -0,0 +1,115 @@
+package com.example.incidentreporter.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.incidentreporter.support.LocalJwks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por petición de autenticar un token de Auth0: el camino anterior (tres JWT.decode
+ * por petición, sin verificar la firma), una validación completa sin caché (una sola
+ * decodificación más la firma RSA contra un JWKS local) y un acierto en la caché de tokens verificados.
+ * No requiere red. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.security.Auth0JwtTokenProviderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Auth0JwtTokenProviderBenchmark {
+
+    private static final String DOMAIN = "example.auth0.com";
+    private static final String ISSUER = "https://" + DOMAIN + "/";
+    private static final String AUDIENCE = "https://api.example.com";
+
+    private LocalJwks jwks;
+    private Auth0JwtTokenProvider provider;
+    private MethodHandle decodeAndValidate;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        jwks = LocalJwks.create("benchmark-key");
+        token = jwks.sign(ISSUER, AUDIENCE, "auth0|1", "user1@example.com", Instant.now().plus(1, ChronoUnit.DAYS));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwksKeyCache keyCache = new JwksKeyCache(meterRegistry, null);
+        ReflectionTestUtils.setField(keyCache, "jwksUri", jwks.uri());
+        ReflectionTestUtils.setField(keyCache, "minRefreshIntervalMs", 0L);
+        keyCache.init();
+
+        provider = new Auth0JwtTokenProvider(meterRegistry, keyCache);
+        ReflectionTestUtils.setField(provider, "auth0Domain", DOMAIN);
+        ReflectionTestUtils.setField(provider, "auth0Audience", AUDIENCE);
+        ReflectionTestUtils.setField(provider, "verifySignature", true);
+        ReflectionTestUtils.setField(provider, "tokenCacheMaximumSize", 10_000L);
+        provider.init();
+
+        // Validación sin caché, invocada directamente para no pagar reflexión en cada llamada
+        decodeAndValidate = MethodHandles.privateLookupIn(Auth0JwtTokenProvider.class, MethodHandles.lookup())
+                .findVirtual(Auth0JwtTokenProvider.class, "decodeAndValidate",
+                        MethodType.methodType(VerifiedClaims.class, String.class))
+                .bindTo(provider);
+
+        if (provider.verify(token) == null) {
+            throw new IllegalStateException("Benchmark token does not verify");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jwks.close();
+    }
+
+    @Benchmark
+    public String legacyDecodeThreeTimes() {
+        // validateToken, getUserIdFromToken y getEmailFromToken decodificaban el token cada uno
+        DecodedJWT jwt = JWT.decode(token);
+        if (!jwt.getAudience().contains(AUDIENCE) || !ISSUER.equals(jwt.getIssuer())
+                || !jwt.getExpiresAtAsInstant().isAfter(Instant.now())) {
+            return null;
+        }
+        String subject = JWT.decode(token).getSubject();
+        String email = JWT.decode(token).getClaim("email").asString();
+        return email != null ? email : subject;
+    }
+
+    @Benchmark
+    public VerifiedClaims decodeAndVerify() throws Throwable {
+        return (VerifiedClaims) decodeAndValidate.invokeExact(token);
+    }
+
+    @Benchmark
+    public VerifiedClaims cachedVerify() {
+        return provider.verify(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(Auth0JwtTokenProviderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
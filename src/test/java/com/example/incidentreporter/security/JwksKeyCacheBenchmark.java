@@ -0,0 +1,93 @@
+package com.example.incidentreporter.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.incidentreporter.support.LocalJwks;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verificaciones de firma RS256 por segundo en un solo hilo (por núcleo): descargando el JWKS
+ * en cada petición, reconstruyendo Algorithm/JWTVerifier en cada petición con la clave ya
+ * conocida, y reutilizando el verificador cacheado por kid en JwksKeyCache.
+ * El JWKS se sirve desde un fichero local (URI file:), así que no requiere red. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.security.JwksKeyCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+public class JwksKeyCacheBenchmark {
+
+    private LocalJwks jwks;
+    private JwksKeyCache keyCache;
+    private RSAKey publicKey;
+    private DecodedJWT jwt;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        jwks = LocalJwks.create("benchmark-key");
+        jwt = JWT.decode(jwks.sign("https://example.auth0.com/", "https://api.example.com", "auth0|1",
+                "user1@example.com", Instant.now().plus(1, ChronoUnit.DAYS)));
+        publicKey = JWKSet.load(jwks.file().toFile()).getKeyByKeyId(jwks.keyId()).toRSAKey();
+
+        keyCache = new JwksKeyCache(new SimpleMeterRegistry(), null);
+        ReflectionTestUtils.setField(keyCache, "jwksUri", jwks.uri());
+        ReflectionTestUtils.setField(keyCache, "minRefreshIntervalMs", 0L);
+        keyCache.init();
+        if (keyCache.verifierFor(jwks.keyId()) == null) {
+            throw new IllegalStateException("Local JWKS was not loaded");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jwks.close();
+    }
+
+    @Benchmark
+    public DecodedJWT fetchJwksPerRequest() throws Exception {
+        RSAKey key = JWKSet.load(jwks.file().toFile()).getKeyByKeyId(jwt.getKeyId()).toRSAKey();
+        return JWT.require(Algorithm.RSA256(key.toRSAPublicKey(), null)).build().verify(jwt);
+    }
+
+    @Benchmark
+    public DecodedJWT buildVerifierPerRequest() throws Exception {
+        return JWT.require(Algorithm.RSA256(publicKey.toRSAPublicKey(), null)).build().verify(jwt);
+    }
+
+    @Benchmark
+    public DecodedJWT cachedVerifier() {
+        return keyCache.verifierFor(jwt.getKeyId()).verify(jwt);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwksKeyCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
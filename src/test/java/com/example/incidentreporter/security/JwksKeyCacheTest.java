@@ -0,0 +1,120 @@
+package com.example.incidentreporter.security;
+
+import com.example.incidentreporter.service.ScheduledJobMonitor;
+import com.example.incidentreporter.support.LocalJwks;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Recarga single-flight de JwksKeyCache contra un JWKS servido por HTTP local cuya respuesta
+ * se puede retener: la descarga no se hace con el cerrojo tomado y las peticiones con un kid
+ * desconocido comparten la recarga en curso.
+ */
+class JwksKeyCacheTest {
+
+    private LocalJwks jwks;
+    private HttpServer server;
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private JwksKeyCache keyCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwks = LocalJwks.create("test-key");
+        byte[] body = Files.readString(jwks.file()).getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwks.json", exchange -> {
+            fetches.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        ScheduledJobMonitor jobMonitor = mock(ScheduledJobMonitor.class);
+        when(jobMonitor.run(anyString(), anyLong(), any())).thenAnswer(invocation -> {
+            invocation.<IntSupplier>getArgument(2).getAsInt();
+            return true;
+        });
+        keyCache = new JwksKeyCache(new SimpleMeterRegistry(), jobMonitor);
+        ReflectionTestUtils.setField(keyCache, "jwksUri",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/jwks.json");
+        ReflectionTestUtils.setField(keyCache, "minRefreshIntervalMs", 60_000L);
+        keyCache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        jwks.close();
+    }
+
+    @Test
+    void slowRefreshDoesNotBlockKnownKidsAndIsSharedByUnknownKids() throws Exception {
+        assertThat(keyCache.verifierFor(jwks.keyId())).isNotNull();
+        assertThat(fetches).hasValue(1);
+
+        release = new CountDownLatch(1);
+        CompletableFuture<Void> scheduled = CompletableFuture.runAsync(keyCache::scheduledRefresh);
+        awaitFetches(2);
+
+        // Con la descarga retenida, un kid conocido sigue respondiendo al momento
+        assertTimeoutPreemptively(Duration.ofSeconds(1),
+                () -> assertThat(keyCache.verifierFor(jwks.keyId())).isNotNull());
+
+        List<CompletableFuture<Object>> unknown = IntStream.range(0, 5)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> (Object) keyCache.verifierFor("rotated-key")))
+                .toList();
+        Thread.sleep(200);
+        assertThat(unknown).noneMatch(CompletableFuture::isDone);
+
+        release.countDown();
+        scheduled.get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Object> lookup : unknown) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).isNull();
+        }
+        assertThat(fetches).hasValue(2);
+    }
+
+    private void awaitFetches(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (fetches.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(fetches).hasValue(expected);
+    }
+}
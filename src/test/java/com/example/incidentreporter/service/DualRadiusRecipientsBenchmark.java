@@ -0,0 +1,99 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.repository.UserLocationRepository;
+import com.example.incidentreporter.support.BenchmarkData;
+import com.example.incidentreporter.support.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Destinatarios de un incidente respetando el radio de notificación de cada usuario
+ * (distancia &lt;= min(radio del incidente, notification_radius)) frente al número de usuarios
+ * (10k, 100k y 1M). La consulta con doble radio resuelve todo en una pasada sobre el índice GiST
+ * y su coste debe mantenerse casi plano; la alternativa ingenua carga los usuarios con ubicación
+ * activa y filtra uno a uno en Java, con coste lineal.
+ * Requiere Docker. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.service.DualRadiusRecipientsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DualRadiusRecipientsBenchmark {
+
+    private static final double LATITUDE = 4.65;
+    private static final double LONGITUDE = -74.08;
+    // ~111 km de lado, igual que SpatialQueryBenchmark
+    private static final double SPREAD_DEGREES = 1.0;
+    private static final double INCIDENT_RADIUS_METERS = 1000;
+
+    private static final String ACTIVE_USERS_SQL = "SELECT u.id, u.fcm_token, u.notification_radius, ul.latitude, ul.longitude " +
+            "FROM users u JOIN user_locations ul ON ul.user_id = u.id " +
+            "WHERE ul.is_active = true AND u.notifications_enabled = true " +
+            "AND u.fcm_token IS NOT NULL AND u.fcm_token <> '' AND u.id <> ?";
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private UserLocationRepository userLocationRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        jdbcTemplate = database.jdbcTemplate();
+        BenchmarkData.seedUsersWithLocations(jdbcTemplate, users, LATITUDE, LONGITUDE, SPREAD_DEGREES);
+        // Radios de notificación entre 250 m y 2 km: parte de los usuarios queda por debajo del radio del incidente
+        jdbcTemplate.update("UPDATE users SET notification_radius = 250 + mod(CAST(substring(id FROM 6) AS integer) * 31, 1750)");
+        jdbcTemplate.execute("ANALYZE users");
+        userLocationRepository = database.repository(UserLocationRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int dualRadiusQuery() {
+        return userLocationRepository.findRecipientsWithinRadius(LATITUDE, LONGITUDE, INCIDENT_RADIUS_METERS, "user-1").size();
+    }
+
+    @Benchmark
+    public int loadUsersAndFilterPerUser() {
+        List<String> recipients = new ArrayList<>();
+        jdbcTemplate.query(ACTIVE_USERS_SQL, rs -> {
+            double radius = Math.min(INCIDENT_RADIUS_METERS, rs.getDouble("notification_radius"));
+            if (GeoUtils.distance(LATITUDE, LONGITUDE, rs.getDouble("latitude"), rs.getDouble("longitude")) <= radius) {
+                recipients.add(rs.getString("fcm_token"));
+            }
+        }, "user-1");
+        return recipients.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DualRadiusRecipientsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
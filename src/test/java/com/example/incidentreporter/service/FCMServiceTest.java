@@ -0,0 +1,140 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.config.FcmClientProperties;
+import com.example.incidentreporter.entity.Incident;
+import com.example.incidentreporter.repository.UserRepository;
+import com.example.incidentreporter.support.StubPushGateway;
+import com.google.firebase.messaging.MessagingErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Envío multicast de FCMService contra un PushGateway simulado: partición en lotes de 500,
+ * alineación de respuestas y posiciones, y limpieza de tokens inválidos en una sola pasada.
+ */
+@ExtendWith(MockitoExtension.class)
+class FCMServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserPositionGrid userPositionGrid;
+
+    @Test
+    void splitsTokensIntoChunksOfAtMost500AndKeepsPositions() {
+        StubPushGateway gateway = new StubPushGateway(5);
+        FCMService service = fcmService(gateway, properties(4, 1000));
+        List<String> tokens = tokens(1200);
+
+        MulticastBatchResponse response = service.sendToMultipleUsers(tokens, incident());
+
+        assertThat(gateway.multicasts()).extracting(List::size).containsExactlyInAnyOrder(500, 500, 200);
+        assertThat(response.getTokens()).isEqualTo(tokens);
+        assertThat(response.getSuccessCount()).isEqualTo(1200);
+        assertThat(response.getUnsentTokens()).isEmpty();
+        assertThat(response.getDeliveredPositions())
+                .isEqualTo(IntStream.range(0, 1200).boxed().collect(Collectors.toSet()));
+        verify(userRepository, never()).clearFcmTokens(any());
+    }
+
+    @Test
+    void clearsInvalidTokensFromAllChunksInOnePass() {
+        StubPushGateway gateway = new StubPushGateway(5)
+                .failToken("token-10", MessagingErrorCode.UNREGISTERED)
+                .failToken("token-750", MessagingErrorCode.INVALID_ARGUMENT)
+                .failToken("token-1100", MessagingErrorCode.UNAVAILABLE);
+        FCMService service = fcmService(gateway, properties(4, 1000));
+        when(userRepository.clearFcmTokens(any())).thenReturn(2);
+
+        MulticastBatchResponse response = service.sendToMultipleUsers(tokens(1200), incident());
+
+        // token-1100 falla con un error reintentable: se reintenta solo (un reintento), sin borrarlo
+        assertThat(gateway.multicasts()).extracting(List::size).containsExactlyInAnyOrder(500, 500, 200, 1);
+        assertThat(response.getFailureCount()).isEqualTo(3);
+        assertThat(response.getDeliveredPositions()).hasSize(1197)
+                .doesNotContain(9, 749, 1099);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> cleared = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository).clearFcmTokens(cleared.capture());
+        assertThat(cleared.getValue()).containsExactlyInAnyOrder("token-10", "token-750");
+        verify(userPositionGrid).clearTokens(Set.of("token-10", "token-750"));
+    }
+
+    @Test
+    void returnsRejectedChunksAsUnsentTokens() {
+        // Un único permiso y sin espera: solo el primer lote obtiene capacidad
+        StubPushGateway gateway = new StubPushGateway(50);
+        FCMService service = fcmService(gateway, properties(1, 0));
+        List<String> tokens = tokens(1200);
+
+        MulticastBatchResponse response = service.sendToMultipleUsers(tokens, incident());
+
+        assertThat(gateway.multicasts()).hasSize(1);
+        assertThat(response.getTokens()).isEqualTo(tokens.subList(0, 500));
+        assertThat(response.getUnsentTokens()).isEqualTo(tokens.subList(500, 1200));
+        assertThat(response.getDeliveredPositions())
+                .isEqualTo(IntStream.range(0, 500).boxed().collect(Collectors.toSet()));
+    }
+
+    @Test
+    void largeFanoutWithDefaultSettingsRejectsNoChunk() {
+        // 100 lotes (más del triple de max-in-flight) con respuestas de 400 ms: si se lanzaran todos
+        // a la vez, los que esperan permiso más de acquire-timeout-ms volverían como no enviados
+        StubPushGateway gateway = new StubPushGateway(400);
+        FCMService service = fcmService(gateway, FcmClientProperties.DEFAULTS);
+        List<String> tokens = tokens(50_000);
+
+        MulticastBatchResponse response = service.sendToMultipleUsers(tokens, incident());
+
+        assertThat(gateway.multicasts()).hasSize(100);
+        assertThat(gateway.maxInFlight()).isLessThanOrEqualTo(FcmClientProperties.DEFAULTS.chunksPerMulticast());
+        assertThat(response.getUnsentTokens()).isEmpty();
+        assertThat(response.getSuccessCount()).isEqualTo(50_000);
+    }
+
+    private FCMService fcmService(StubPushGateway gateway, FcmClientProperties properties) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FcmPushClient client = new FcmPushClient(gateway, meterRegistry, properties);
+        client.init();
+
+        FCMService service = new FCMService(userRepository, client, new FcmMulticastSender(client, properties),
+                userPositionGrid, meterRegistry);
+        service.init();
+        return service;
+    }
+
+    // Reintento único y backoff mínimo para que las pruebas sean rápidas
+    private static FcmClientProperties properties(int maxInFlight, long acquireTimeoutMs) {
+        return new FcmClientProperties(maxInFlight, acquireTimeoutMs, 5000, 2, 1,
+                FcmClientProperties.DEFAULTS.chunksPerMulticast(), FcmClientProperties.DEFAULTS.circuit());
+    }
+
+    private static List<String> tokens(int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> "token-" + i).toList();
+    }
+
+    private static Incident incident() {
+        Incident incident = new Incident();
+        incident.setId("incident-1");
+        incident.setTitle("Corte de vía");
+        return incident;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.config.FcmClientProperties;
+import com.example.incidentreporter.support.StubPushGateway;
+import com.google.firebase.messaging.MulticastMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Envío multicast sobre un PushGateway simulado con latencia inyectada (10, 50 y 200 ms por
+ * llamada) y 10k, 50k y 100k destinatarios, con la configuración por defecto de producción
+ * (permisos, deadline, reintentos y breaker).
+ * Varios hilos envían a la vez y comparten las llamadas en vuelo: el tiempo por envío debe
+ * acercarse a ceil(lotes / chunks-per-multicast) * latencia, sin lotes rechazados por esperar permiso.
+ * No requiere FCM ni base de datos. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.service.FcmPushClientBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class FcmPushClientBenchmark {
+
+    @Param({"10", "50", "200"})
+    public long latencyMs;
+
+    @Param({"10000", "50000", "100000"})
+    public int tokens;
+
+    private FcmMulticastSender sender;
+    private List<String> tokenList;
+    private Function<List<String>, MulticastMessage> messageFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FcmClientProperties properties = FcmClientProperties.DEFAULTS;
+        FcmPushClient client = new FcmPushClient(new StubPushGateway(latencyMs), new SimpleMeterRegistry(), properties);
+        client.init();
+
+        sender = new FcmMulticastSender(client, properties);
+        tokenList = IntStream.rangeClosed(1, tokens).mapToObj(i -> "token-" + i).toList();
+        messageFactory = chunk -> MulticastMessage.builder()
+                .addAllTokens(chunk)
+                .putData("type", "NEW_INCIDENT")
+                .build();
+    }
+
+    @Benchmark
+    public int sendMulticast() {
+        MulticastBatchResponse response = sender.send(tokenList, messageFactory);
+        if (!response.getUnsentTokens().isEmpty()) {
+            throw new IllegalStateException(response.getUnsentTokens().size() + " tokens were rejected");
+        }
+        return response.getResponses().size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FcmPushClientBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.IncidentConfirmationRequest;
+import com.example.incidentreporter.enums.ConfirmationAction;
+import com.example.incidentreporter.support.BenchmarkData;
+import com.example.incidentreporter.support.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Votos por segundo con 8 hilos votando a la vez: todos sobre el mismo incidente (incidente
+ * caliente, compiten por la fila de contadores) frente a un incidente distinto por hilo.
+ * Cada hilo es un usuario que alterna confirmar y negar, así cada voto cambia los contadores.
+ * Requiere Docker. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.service.IncidentConfirmationWriterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(IncidentConfirmationWriterBenchmark.THREADS)
+@Fork(1)
+public class IncidentConfirmationWriterBenchmark {
+
+    static final int THREADS = 8;
+
+    private static final double LATITUDE = 4.65;
+    private static final double LONGITUDE = -74.08;
+
+    private BenchmarkDatabase database;
+    private TransactionTemplate transactionTemplate;
+    private IncidentConfirmationWriter writer;
+    private final AtomicInteger nextVoter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        // user-1 es el autor; los votantes son user-2..user-(THREADS + 1)
+        BenchmarkData.seedUsersWithLocations(database.jdbcTemplate(), THREADS + 1, LATITUDE, LONGITUDE, 0.01);
+        BenchmarkData.seedIncidents(database.jdbcTemplate(), "user-1", THREADS, LATITUDE, LONGITUDE, 0.01);
+        transactionTemplate = database.transactionTemplate();
+        writer = new IncidentConfirmationWriter(database.jdbcTemplate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Usuario e incidente propios de cada hilo
+     */
+    @State(Scope.Thread)
+    public static class Voter {
+
+        private String userId;
+        private String ownIncidentId;
+        private boolean confirm;
+        private final IncidentConfirmationRequest request = new IncidentConfirmationRequest();
+
+        @Setup(Level.Trial)
+        public void setUp(IncidentConfirmationWriterBenchmark benchmark) {
+            int voter = benchmark.nextVoter.incrementAndGet();
+            userId = "user-" + (voter + 1);
+            ownIncidentId = "incident-" + voter;
+            request.setUserLatitude(LATITUDE);
+            request.setUserLongitude(LONGITUDE);
+        }
+
+        IncidentConfirmationRequest next() {
+            confirm = !confirm;
+            request.setAction(confirm ? ConfirmationAction.CONFIRMED : ConfirmationAction.DENIED);
+            return request;
+        }
+    }
+
+    @Benchmark
+    public IncidentConfirmationWriter.Vote hotIncident(Voter voter) {
+        return vote("incident-1", voter);
+    }
+
+    @Benchmark
+    public IncidentConfirmationWriter.Vote incidentPerThread(Voter voter) {
+        return vote(voter.ownIncidentId, voter);
+    }
+
+    private IncidentConfirmationWriter.Vote vote(String incidentId, Voter voter) {
+        IncidentConfirmationRequest request = voter.next();
+        return transactionTemplate.execute(status ->
+                writer.record(incidentId, voter.userId, request, LocalDateTime.now()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IncidentConfirmationWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
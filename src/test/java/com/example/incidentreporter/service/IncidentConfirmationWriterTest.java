@@ -0,0 +1,149 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.IncidentConfirmationRequest;
+import com.example.incidentreporter.enums.ConfirmationAction;
+import com.example.incidentreporter.support.BenchmarkData;
+import com.example.incidentreporter.support.BenchmarkDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Votos simultáneos sobre PostgreSQL: tras confirmar, negar y cambiar de voto en paralelo,
+ * los contadores del incidente deben coincidir con las filas de incident_confirmations.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class IncidentConfirmationWriterTest {
+
+    private static final int USERS = 20;
+    private static final int THREADS = 16;
+
+    private static BenchmarkDatabase database;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static IncidentConfirmationWriter writer;
+
+    @BeforeAll
+    static void startDatabase() {
+        database = BenchmarkDatabase.start();
+        jdbcTemplate = database.jdbcTemplate();
+        transactionTemplate = database.transactionTemplate();
+        writer = new IncidentConfirmationWriter(jdbcTemplate);
+
+        BenchmarkData.seedUsersWithLocations(jdbcTemplate, USERS, 4.65, -74.08, 0.01);
+        BenchmarkData.seedIncidents(jdbcTemplate, "user-1", 2, 4.65, -74.08, 0.01);
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        database.close();
+    }
+
+    @Test
+    void concurrentVotesFromManyUsersKeepCountersInSync() throws Exception {
+        // Cada usuario vota varias veces con acciones al azar; sus votos compiten entre sí y con los demás
+        Random random = new Random(42);
+        ConfirmationAction[] actions = ConfirmationAction.values();
+        List<Runnable> votes = new ArrayList<>();
+        for (int user = 1; user <= USERS; user++) {
+            for (int i = 0; i < 10; i++) {
+                String userId = "user-" + user;
+                ConfirmationAction action = actions[random.nextInt(actions.length)];
+                votes.add(() -> vote("incident-1", userId, action));
+            }
+        }
+        Collections.shuffle(votes, random);
+
+        runConcurrently(votes);
+
+        assertCountersMatchRows("incident-1");
+        assertThat(rowCount("incident-1")).isEqualTo(USERS);
+    }
+
+    @Test
+    void concurrentFlipsFromOneUserLeaveOneVote() throws Exception {
+        List<Runnable> votes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ConfirmationAction action = i % 2 == 0 ? ConfirmationAction.CONFIRMED : ConfirmationAction.DENIED;
+            votes.add(() -> vote("incident-2", "user-2", action));
+        }
+
+        runConcurrently(votes);
+
+        assertCountersMatchRows("incident-2");
+        assertThat(rowCount("incident-2")).isEqualTo(1);
+        Map<String, Object> counters = counters("incident-2");
+        assertThat(((Number) counters.get("confirmation_count")).intValue()
+                + ((Number) counters.get("denial_count")).intValue()).isEqualTo(1);
+    }
+
+    private static void vote(String incidentId, String userId, ConfirmationAction action) {
+        IncidentConfirmationRequest request = new IncidentConfirmationRequest();
+        request.setAction(action);
+        request.setUserLatitude(4.65);
+        request.setUserLongitude(-74.08);
+        transactionTemplate.executeWithoutResult(status ->
+                writer.record(incidentId, userId, request, LocalDateTime.now()));
+    }
+
+    private static void runConcurrently(List<Runnable> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertCountersMatchRows(String incidentId) {
+        Map<String, Object> rows = jdbcTemplate.queryForMap(
+                "SELECT count(*) FILTER (WHERE action = 'CONFIRMED') AS confirmed, " +
+                "count(*) FILTER (WHERE action = 'DENIED') AS denied " +
+                "FROM incident_confirmations WHERE incident_id = ?", incidentId);
+        Map<String, Object> counters = counters(incidentId);
+
+        assertThat(((Number) counters.get("confirmation_count")).longValue())
+                .isEqualTo(((Number) rows.get("confirmed")).longValue());
+        assertThat(((Number) counters.get("denial_count")).longValue())
+                .isEqualTo(((Number) rows.get("denied")).longValue());
+    }
+
+    private static Map<String, Object> counters(String incidentId) {
+        return jdbcTemplate.queryForMap(
+                "SELECT confirmation_count, denial_count FROM incidents WHERE id = ?", incidentId);
+    }
+
+    private static int rowCount(String incidentId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM incident_confirmations WHERE incident_id = ?", Integer.class, incidentId);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.IncidentConfirmationRequest;
+import com.example.incidentreporter.entity.Incident;
+import com.example.incidentreporter.enums.ConfirmationAction;
+import com.example.incidentreporter.enums.NotificationType;
+import com.example.incidentreporter.repository.IncidentConfirmationRepository;
+import com.example.incidentreporter.repository.IncidentRepository;
+import com.example.incidentreporter.repository.UserLocationRepository;
+import com.example.incidentreporter.support.BenchmarkData;
+import com.example.incidentreporter.support.PostgisContainer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Destinatarios de notificaciones de actualización: una sola consulta sea cual sea el número
+ * de usuarios cercanos, excluyendo a quienes votaron o ya recibieron una actualización.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class IncidentRecipientResolverTest {
+
+    private static final double LATITUDE = 4.65;
+    private static final double LONGITUDE = -74.08;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = PostgisContainer.create();
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private IncidentConfirmationRepository incidentConfirmationRepository;
+
+    @Autowired
+    private UserLocationRepository userLocationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 1000})
+    void updateRecipientsFromDatabaseIsOneStatement(int users) {
+        Incident incident = seed(users);
+        IncidentRecipientResolver resolver = new IncidentRecipientResolver(
+                incidentConfirmationRepository, userLocationRepository, mock(UserPositionGrid.class));
+
+        Statistics statistics = statistics();
+        List<UserPositionGrid.Recipient> recipients = resolver.findUpdateRecipients(incident);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(recipients).extracting(UserPositionGrid.Recipient::userId)
+                .containsExactlyInAnyOrderElementsOf(expectedRecipients(users));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 1000})
+    void updateRecipientsFromGridIsOneStatement(int users) {
+        Incident incident = seed(users);
+        UserPositionGrid grid = mock(UserPositionGrid.class);
+        when(grid.isReady()).thenReturn(true);
+        when(grid.findRecipients(anyDouble(), anyDouble(), anyDouble(), anyString())).thenReturn(
+                IntStream.rangeClosed(2, users)
+                        .mapToObj(i -> new UserPositionGrid.Recipient("user-" + i, "token-" + i))
+                        .toList());
+        IncidentRecipientResolver resolver = new IncidentRecipientResolver(
+                incidentConfirmationRepository, userLocationRepository, grid);
+
+        Statistics statistics = statistics();
+        List<UserPositionGrid.Recipient> recipients = resolver.findUpdateRecipients(incident);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(recipients).extracting(UserPositionGrid.Recipient::userId)
+                .containsExactlyInAnyOrderElementsOf(expectedRecipients(users));
+    }
+
+    /**
+     * Usuarios cercanos a un incidente de user-1; user-2 lo confirmó y user-3 ya recibió una actualización
+     */
+    private Incident seed(int users) {
+        BenchmarkData.seedUsersWithLocations(jdbcTemplate, users, LATITUDE, LONGITUDE, 0.005);
+        BenchmarkData.seedIncidents(jdbcTemplate, "user-1", 1, LATITUDE, LONGITUDE, 0);
+
+        IncidentConfirmationRequest request = new IncidentConfirmationRequest();
+        request.setAction(ConfirmationAction.CONFIRMED);
+        request.setUserLatitude(LATITUDE);
+        request.setUserLongitude(LONGITUDE);
+        new IncidentConfirmationWriter(jdbcTemplate).record("incident-1", "user-2", request, LocalDateTime.now());
+
+        NotificationBulkWriter notificationWriter = new NotificationBulkWriter(jdbcTemplate, new SimpleMeterRegistry());
+        notificationWriter.init();
+        notificationWriter.insert(List.of("user-3"), "incident-1", NotificationType.INCIDENT_UPDATE,
+                "Actualización", "Incidente confirmado", LocalDateTime.now());
+
+        return incidentRepository.findById("incident-1").orElseThrow();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static List<String> expectedRecipients(int users) {
+        return IntStream.rangeClosed(4, users).mapToObj(i -> "user-" + i).toList();
+    }
+}
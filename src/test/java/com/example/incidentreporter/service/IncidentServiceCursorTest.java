@@ -0,0 +1,124 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.CursorPage;
+import com.example.incidentreporter.dto.IncidentDTO;
+import com.example.incidentreporter.dto.NearbyIncidentView;
+import com.example.incidentreporter.entity.User;
+import com.example.incidentreporter.enums.IncidentCategory;
+import com.example.incidentreporter.enums.IncidentSeverity;
+import com.example.incidentreporter.enums.IncidentStatus;
+import com.example.incidentreporter.exception.InvalidCursorException;
+import com.example.incidentreporter.repository.IncidentConfirmationRepository;
+import com.example.incidentreporter.repository.IncidentRepository;
+import com.example.incidentreporter.repository.UserLocationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cursores de incidentes cercanos: cada cursor se sigue por el camino (índice o base de datos)
+ * que calculó su distancia, porque las dos fórmulas no coinciden al último decimal.
+ */
+@ExtendWith(MockitoExtension.class)
+class IncidentServiceCursorTest {
+
+    private static final double LATITUDE = 4.65;
+    private static final double LONGITUDE = -74.08;
+
+    @Mock
+    private IncidentRepository incidentRepository;
+
+    @Mock
+    private IncidentConfirmationRepository incidentConfirmationRepository;
+
+    @Mock
+    private IncidentSpatialIndex incidentSpatialIndex;
+
+    private IncidentService incidentService;
+    private User currentUser;
+
+    @BeforeEach
+    void setUp() {
+        incidentService = new IncidentService(incidentRepository, incidentConfirmationRepository,
+                mock(IncidentConfirmationWriter.class), mock(UserLocationRepository.class), mock(UserService.class),
+                incidentSpatialIndex, mock(IncidentFanoutService.class), mock(IncidentUpdateTracker.class),
+                mock(TransactionTemplate.class), new SimpleMeterRegistry(), mock(ScheduledJobMonitor.class));
+        currentUser = new User();
+        currentUser.setId("user-1");
+    }
+
+    @Test
+    void indexCursorIsRejectedAfterFallingBackToTheDatabase() {
+        when(incidentSpatialIndex.isReady()).thenReturn(true);
+        when(incidentSpatialIndex.findNearbyAfter(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyString(), anyInt()))
+                .thenReturn(hits(3));
+
+        CursorPage<IncidentDTO> first = incidentService.getIncidentsNearby(LATITUDE, LONGITUDE, 1000, currentUser, null, 2);
+        assertThat(first.isHasNext()).isTrue();
+
+        when(incidentSpatialIndex.isReady()).thenReturn(false);
+        assertThatThrownBy(() -> incidentService.getIncidentsNearby(
+                LATITUDE, LONGITUDE, 1000, currentUser, first.getNextCursor(), 2))
+                .isInstanceOf(InvalidCursorException.class);
+        verify(incidentRepository, never()).findIncidentsWithinRadiusAfter(
+                anyDouble(), anyDouble(), anyDouble(), anyString(), anyDouble(), anyString(), anyInt());
+    }
+
+    @Test
+    void databaseCursorStaysOnTheDatabaseOnceTheIndexIsReady() {
+        List<NearbyIncidentView> views = List.of(view("incident-1", 10), view("incident-2", 20), view("incident-3", 30));
+        when(incidentSpatialIndex.isReady()).thenReturn(false);
+        when(incidentRepository.findIncidentsWithinRadiusAfter(
+                anyDouble(), anyDouble(), anyDouble(), anyString(), anyDouble(), anyString(), anyInt()))
+                .thenReturn(views);
+
+        CursorPage<IncidentDTO> first = incidentService.getIncidentsNearby(LATITUDE, LONGITUDE, 1000, currentUser, null, 2);
+        assertThat(first.isHasNext()).isTrue();
+
+        when(incidentSpatialIndex.isReady()).thenReturn(true);
+        incidentService.getIncidentsNearby(LATITUDE, LONGITUDE, 1000, currentUser, first.getNextCursor(), 2);
+
+        verify(incidentRepository).findIncidentsWithinRadiusAfter(
+                eq(LATITUDE), eq(LONGITUDE), eq(1000.0), eq("user-1"), eq(20.0), eq("incident-2"), eq(3));
+        verify(incidentSpatialIndex, never()).findNearbyAfter(
+                anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyString(), anyInt());
+    }
+
+    private static List<IncidentSpatialIndex.Hit> hits(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> new IncidentSpatialIndex.Hit(IncidentDTO.builder()
+                        .id("incident-" + i)
+                        .updatedAt(LocalDateTime.now())
+                        .build(), i * 10.0))
+                .toList();
+    }
+
+    private static NearbyIncidentView view(String id, double distance) {
+        NearbyIncidentView view = mock(NearbyIncidentView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getDistance()).thenReturn(distance);
+        when(view.getSeverity()).thenReturn(IncidentSeverity.MEDIUM.name());
+        when(view.getCategory()).thenReturn(IncidentCategory.OTHER.name());
+        when(view.getStatus()).thenReturn(IncidentStatus.ACTIVE.name());
+        return view;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.CursorPage;
+import com.example.incidentreporter.dto.IncidentConfirmationRequest;
+import com.example.incidentreporter.dto.IncidentDTO;
+import com.example.incidentreporter.entity.User;
+import com.example.incidentreporter.enums.ConfirmationAction;
+import com.example.incidentreporter.repository.IncidentConfirmationRepository;
+import com.example.incidentreporter.repository.IncidentRepository;
+import com.example.incidentreporter.repository.UserLocationRepository;
+import com.example.incidentreporter.support.BenchmarkData;
+import com.example.incidentreporter.support.PostgisContainer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Listados de incidentes cercanos sin índice en memoria: cada página debe costar una sola
+ * sentencia SQL, con reportero, imágenes y voto del usuario incluidos en la proyección.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class IncidentServiceNearbyQueryTest {
+
+    private static final double LATITUDE = 4.65;
+    private static final double LONGITUDE = -74.08;
+    private static final double RADIUS = 5000;
+    private static final int INCIDENTS = 60;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = PostgisContainer.create();
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private IncidentConfirmationRepository incidentConfirmationRepository;
+
+    @Autowired
+    private UserLocationRepository userLocationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private IncidentService incidentService;
+    private Statistics statistics;
+    private User currentUser;
+
+    @BeforeEach
+    void setUp() {
+        // El índice espacial simulado nunca está listo: las consultas van siempre a la base de datos
+        incidentService = new IncidentService(incidentRepository, incidentConfirmationRepository,
+                mock(IncidentConfirmationWriter.class), userLocationRepository, mock(UserService.class),
+                mock(IncidentSpatialIndex.class), mock(IncidentFanoutService.class), mock(IncidentUpdateTracker.class),
+                mock(TransactionTemplate.class), new SimpleMeterRegistry(), mock(ScheduledJobMonitor.class));
+
+        BenchmarkData.seedUsersWithLocations(jdbcTemplate, 2, LATITUDE, LONGITUDE, 0.01);
+        BenchmarkData.seedIncidents(jdbcTemplate, "user-1", INCIDENTS, LATITUDE, LONGITUDE, 0.01);
+        jdbcTemplate.update("INSERT INTO incident_image_urls (incident_id, image_urls) " +
+                "SELECT 'incident-' || g, 'https://images.example.com/' || g || '-' || n " +
+                "FROM generate_series(1, ?) g, generate_series(1, 2) n", INCIDENTS);
+
+        IncidentConfirmationWriter writer = new IncidentConfirmationWriter(jdbcTemplate);
+        IncidentConfirmationRequest request = new IncidentConfirmationRequest();
+        request.setAction(ConfirmationAction.CONFIRMED);
+        request.setUserLatitude(LATITUDE);
+        request.setUserLongitude(LONGITUDE);
+        for (int i = 1; i <= INCIDENTS; i += 2) {
+            writer.record("incident-" + i, "user-2", request, LocalDateTime.now());
+        }
+
+        currentUser = new User();
+        currentUser.setId("user-2");
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void nearbyListIsOneStatement() {
+        List<IncidentDTO> incidents = incidentService.getIncidentsNearby(LATITUDE, LONGITUDE, RADIUS, currentUser);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(incidents).hasSize(INCIDENTS);
+        assertFullyMapped(incidents);
+    }
+
+    @Test
+    void nearbyOffsetPageIsOneStatement() {
+        Page<IncidentDTO> page = incidentService.getIncidentsNearbyPaged(LATITUDE, LONGITUDE, RADIUS, currentUser,
+                PageRequest.of(1, 20));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(page.getContent()).hasSize(20);
+        assertThat(page.getTotalElements()).isEqualTo(INCIDENTS);
+        assertFullyMapped(page.getContent());
+    }
+
+    @Test
+    void nearbyCursorPageIsOneStatement() {
+        CursorPage<IncidentDTO> page = incidentService.getIncidentsNearby(LATITUDE, LONGITUDE, RADIUS, currentUser,
+                null, 20);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(page.getContent()).hasSize(20);
+        assertThat(page.isHasNext()).isTrue();
+        assertFullyMapped(page.getContent());
+    }
+
+    private static void assertFullyMapped(List<IncidentDTO> incidents) {
+        assertThat(incidents).allSatisfy(incident -> {
+            int number = Integer.parseInt(incident.getId().substring("incident-".length()));
+            assertThat(incident.getReporterEmail()).isEqualTo("user1@example.com");
+            assertThat(incident.getImageUrls()).containsExactlyInAnyOrder(
+                    "https://images.example.com/" + number + "-1", "https://images.example.com/" + number + "-2");
+            assertThat(incident.isUserHasConfirmed()).isEqualTo(number % 2 == 1);
+        });
+    }
+}
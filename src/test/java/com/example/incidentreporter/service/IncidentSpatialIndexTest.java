@@ -0,0 +1,136 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.IncidentDTO;
+import com.example.incidentreporter.enums.IncidentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Índice espacial de incidentes: paginación por cursor sobre el índice en memoria y
+ * escrituras concurrentes o desordenadas del mismo incidente.
+ */
+class IncidentSpatialIndexTest {
+
+    private static final double LATITUDE = 4.65;
+    private static final double LONGITUDE = -74.08;
+
+    private IncidentSpatialIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new IncidentSpatialIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @Test
+    void cursorPagesMatchTheFullOrderingIncludingTies() {
+        List<IncidentDTO> incidents = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            // Pares de incidentes en el mismo punto: empatan en distancia y los desempata el id
+            int slot = (i + 1) / 2;
+            incidents.add(incident("incident-" + i, LATITUDE + (slot % 17) * 0.001, LONGITUDE + (slot % 13) * 0.001));
+        }
+        index.load(incidents);
+
+        List<String> expected = index.findNearby(LATITUDE, LONGITUDE, 5000).stream()
+                .map(hit -> hit.incident().getId())
+                .toList();
+
+        List<String> paged = new ArrayList<>();
+        double afterDistance = -1;
+        String afterId = "";
+        while (true) {
+            List<IncidentSpatialIndex.Hit> page = index.findNearbyAfter(LATITUDE, LONGITUDE, 5000, afterDistance, afterId, 7);
+            if (page.isEmpty()) {
+                break;
+            }
+            assertThat(page).hasSizeLessThanOrEqualTo(7);
+            page.forEach(hit -> paged.add(hit.incident().getId()));
+            IncidentSpatialIndex.Hit last = page.get(page.size() - 1);
+            afterDistance = last.distance();
+            afterId = last.incident().getId();
+        }
+
+        assertThat(expected).hasSize(200);
+        assertThat(paged).isEqualTo(expected);
+    }
+
+    @Test
+    void lateActiveSnapshotDoesNotReinsertARemovedIncident() {
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(1);
+        IncidentDTO active = incident("incident-1", LATITUDE, LONGITUDE).toBuilder().updatedAt(createdAt).build();
+        index.put(active);
+
+        index.put(active.toBuilder().status(IncidentStatus.DISPUTED).updatedAt(createdAt.plusSeconds(10)).build());
+        // putAfterCommit retrasado de la creación, aplicado después del cambio a DISPUTED
+        index.put(active);
+
+        assertThat(index.findNearby(LATITUDE, LONGITUDE, 1000)).isEmpty();
+    }
+
+    @Test
+    void concurrentWritesKeepTheNewestSnapshot() throws Exception {
+        LocalDateTime base = LocalDateTime.now().minusMinutes(1);
+        List<IncidentDTO> versions = new ArrayList<>();
+        for (int version = 0; version < 200; version++) {
+            IncidentStatus status = version % 3 == 0 ? IncidentStatus.DISPUTED : IncidentStatus.ACTIVE;
+            versions.add(incident("incident-1", LATITUDE, LONGITUDE).toBuilder()
+                    .status(status)
+                    .confirmationCount(version)
+                    .updatedAt(base.plusNanos(version * 1000L))
+                    .build());
+        }
+        // La última versión es ACTIVE: el incidente debe quedar en el índice con ella
+        IncidentDTO newest = versions.get(versions.size() - 1);
+        assertThat(newest.getStatus()).isEqualTo(IncidentStatus.ACTIVE);
+
+        List<IncidentDTO> shuffled = new ArrayList<>(versions);
+        Collections.shuffle(shuffled, new Random(7));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (IncidentDTO version : shuffled) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    index.put(version);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(index.findNearby(LATITUDE, LONGITUDE, 1000))
+                .singleElement()
+                .satisfies(hit -> assertThat(hit.incident().getConfirmationCount()).isEqualTo(newest.getConfirmationCount()));
+    }
+
+    private static IncidentDTO incident(String id, double latitude, double longitude) {
+        return IncidentDTO.builder()
+                .id(id)
+                .latitude(latitude)
+                .longitude(longitude)
+                .status(IncidentStatus.ACTIVE)
+                .updatedAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.entity.Incident;
+import com.example.incidentreporter.entity.Notification;
+import com.example.incidentreporter.entity.User;
+import com.example.incidentreporter.enums.NotificationType;
+import com.example.incidentreporter.repository.NotificationRepository;
+import com.example.incidentreporter.support.BenchmarkData;
+import com.example.incidentreporter.support.BenchmarkDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Tiempo de crear las notificaciones de un incidente para 500 y 5.000 destinatarios:
+ * antes, un save de JPA con su propia transacción por destinatario; ahora, NotificationBulkWriter
+ * con JDBC batch e IDs generados en el cliente. Filas por segundo = destinatarios / tiempo por operación.
+ * Requiere Docker. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.service.NotificationBulkWriterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationBulkWriterBenchmark {
+
+    private static final String TITLE = "Nuevo incidente cerca de ti";
+
+    @Param({"500", "5000"})
+    public int recipients;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private NotificationRepository notificationRepository;
+    private NotificationBulkWriter bulkWriter;
+    private List<String> userIds;
+    private List<User> users;
+    private Incident incident;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        jdbcTemplate = database.jdbcTemplate();
+        BenchmarkData.seedUsersWithLocations(jdbcTemplate, recipients, 4.65, -74.08, 0.1);
+        BenchmarkData.seedIncidents(jdbcTemplate, "user-1", 1, 4.65, -74.08, 0);
+
+        notificationRepository = database.repository(NotificationRepository.class);
+        bulkWriter = new NotificationBulkWriter(jdbcTemplate, new SimpleMeterRegistry());
+        bulkWriter.init();
+
+        userIds = IntStream.rangeClosed(1, recipients).mapToObj(i -> "user-" + i).toList();
+        users = userIds.stream().map(id -> {
+            User user = new User();
+            user.setId(id);
+            return user;
+        }).toList();
+        incident = new Incident();
+        incident.setId("incident-1");
+        incident.setTitle("Incident 1");
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearNotifications() {
+        // Evita que la tabla crezca entre iteraciones y distorsione los tiempos de inserción
+        jdbcTemplate.execute("TRUNCATE notifications");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int saveOnePerRecipient() {
+        for (User user : users) {
+            notificationRepository.save(Notification.builder()
+                    .user(user)
+                    .incident(incident)
+                    .title(TITLE)
+                    .message(incident.getTitle())
+                    .type(NotificationType.NEW_INCIDENT)
+                    .status(Notification.NotificationStatus.PENDING)
+                    .build());
+        }
+        return users.size();
+    }
+
+    @Benchmark
+    public int bulkInsert() {
+        return bulkWriter.insert(userIds, incident.getId(), NotificationType.NEW_INCIDENT,
+                TITLE, incident.getTitle(), LocalDateTime.now().plusMinutes(1)).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotificationBulkWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
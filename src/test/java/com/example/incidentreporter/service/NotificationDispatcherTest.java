@@ -0,0 +1,167 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.dto.PendingPushView;
+import com.example.incidentreporter.entity.Incident;
+import com.example.incidentreporter.repository.IncidentRepository;
+import com.example.incidentreporter.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reintento de pushes pendientes: los multicast de los distintos incidentes de un lote
+ * se envían a la vez, con un máximo en vuelo, y los resultados se registran en una sola llamada.
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    private static final int INCIDENTS = 40;
+    private static final int CONCURRENCY = 16;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private IncidentRepository incidentRepository;
+
+    @Mock
+    private FCMService fcmService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ScheduledJobMonitor jobMonitor;
+
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationDispatcher(notificationRepository, notificationService, incidentRepository,
+                fcmService, transactionTemplate, new SimpleMeterRegistry(), jobMonitor);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 500);
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerRun", 1);
+        ReflectionTestUtils.setField(dispatcher, "leaseMs", 120000L);
+        ReflectionTestUtils.setField(dispatcher, "concurrency", CONCURRENCY);
+        dispatcher.init();
+
+        when(jobMonitor.run(anyString(), anyLong(), any())).thenAnswer(invocation -> {
+            invocation.<IntSupplier>getArgument(2).getAsInt();
+            return true;
+        });
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void sendsIncidentGroupsConcurrentlyAndRecordsResultsOnce() {
+        // Una notificación por incidente, más una sin token que se descarta sin enviar
+        List<PendingPushView> pushes = new ArrayList<>();
+        IntStream.rangeClosed(1, INCIDENTS).forEach(i -> pushes.add(push("n-" + i, "incident-" + i, "token-" + i)));
+        pushes.add(push("n-no-token", "incident-1", null));
+        when(notificationRepository.claimPendingPushes(any(), any(), anyInt())).thenReturn(pushes);
+        when(incidentRepository.findAllById(any())).thenReturn(IntStream.rangeClosed(1, INCIDENTS)
+                .mapToObj(NotificationDispatcherTest::incident).toList());
+
+        // Cada envío tarda 100 ms; el del incidente 3 falla entero
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(fcmService.sendToMultipleUsersAsync(anyList(), any())).thenAnswer(invocation -> {
+            Incident incident = invocation.getArgument(1);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            boolean fails = incident.getId().equals("incident-3");
+            MulticastBatchResponse response = fails ? null : mock(MulticastBatchResponse.class);
+            if (!fails) {
+                when(response.getDeliveredPositions()).thenReturn(Set.of(0));
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                if (fails) {
+                    throw new IllegalStateException("FCM unavailable");
+                }
+                return response;
+            }, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+        });
+        when(notificationService.recordPushResults(any(), any(), any()))
+                .thenReturn(new NotificationService.PushOutcome(INCIDENTS - 1, 1, 1, 0));
+
+        dispatcher.sendPendingNotifications();
+
+        assertThat(maxInFlight.get()).isEqualTo(CONCURRENCY);
+        verify(fcmService, times(INCIDENTS)).sendToMultipleUsersAsync(anyList(), any());
+        verify(fcmService).clearInvalidTokens(any());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> sent = ArgumentCaptor.forClass(Collection.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> skipped = ArgumentCaptor.forClass(Collection.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> failed = ArgumentCaptor.forClass(Collection.class);
+        verify(notificationService).recordPushResults(sent.capture(), skipped.capture(), failed.capture());
+        assertThat(sent.getValue()).hasSize(INCIDENTS - 1).doesNotContain("n-3");
+        assertThat(skipped.getValue()).containsExactly("n-no-token");
+        assertThat(failed.getValue()).containsExactly("n-3");
+    }
+
+    private static PendingPushView push(String id, String incidentId, String fcmToken) {
+        return new PendingPushView() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getIncidentId() {
+                return incidentId;
+            }
+
+            @Override
+            public String getFcmToken() {
+                return fcmToken;
+            }
+
+            @Override
+            public boolean getNotificationsEnabled() {
+                return true;
+            }
+        };
+    }
+
+    private static Incident incident(int number) {
+        Incident incident = new Incident();
+        incident.setId("incident-" + number);
+        incident.setTitle("Incident " + number);
+        return incident;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.repository.UserRepository;
+import com.example.incidentreporter.support.BenchmarkData;
+import com.example.incidentreporter.support.BenchmarkDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por petición de resolver el usuario autenticado: antes, una consulta findByAuth0Id
+ * en cada petición; ahora, un acierto en UserIdentityCache. Las peticiones rotan entre los
+ * usuarios sembrados para no medir siempre la misma fila.
+ * Requiere Docker. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.service.UserIdentityCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserIdentityCacheBenchmark {
+
+    @Param({"1000", "10000"})
+    public int users;
+
+    private BenchmarkDatabase database;
+    private UserRepository userRepository;
+    private UserIdentityCache identityCache;
+    private String[] auth0Ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        BenchmarkData.seedUsersWithLocations(database.jdbcTemplate(), users, 4.65, -74.08, 0.1);
+        userRepository = database.repository(UserRepository.class);
+
+        identityCache = new UserIdentityCache(userRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(identityCache, "maximumSize", (long) users);
+        ReflectionTestUtils.setField(identityCache, "ttlSeconds", TimeUnit.HOURS.toSeconds(1));
+        identityCache.init();
+
+        auth0Ids = new String[users];
+        for (int i = 0; i < users; i++) {
+            auth0Ids[i] = "auth0|" + (i + 1);
+            // Caché caliente: la medición solo ve aciertos
+            identityCache.find(auth0Ids[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public String repositoryLookup() {
+        return userRepository.findByAuth0Id(nextAuth0Id()).orElseThrow().getId();
+    }
+
+    @Benchmark
+    public String cachedLookup() {
+        return identityCache.find(nextAuth0Id()).orElseThrow().id();
+    }
+
+    private String nextAuth0Id() {
+        next = next + 1 == auth0Ids.length ? 0 : next + 1;
+        return auth0Ids[next];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserIdentityCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
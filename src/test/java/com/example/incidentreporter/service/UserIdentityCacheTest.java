@@ -0,0 +1,86 @@
+package com.example.incidentreporter.service;
+
+import com.example.incidentreporter.entity.User;
+import com.example.incidentreporter.exception.EntityNotFoundException;
+import com.example.incidentreporter.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Caché de identidades con fallos recordados: un usuario autenticado pero no registrado
+ * consulta la base de datos una sola vez, y darlo de alta descarta el fallo cacheado.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserIdentityCacheTest {
+
+    private static final String AUTH0_ID = "auth0|new";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserPositionGrid userPositionGrid;
+
+    @Mock
+    private FCMService fcmService;
+
+    private UserIdentityCache identityCache;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        identityCache = new UserIdentityCache(userRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(identityCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(identityCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(identityCache, "negativeTtlSeconds", 30L);
+        identityCache.init();
+        userService = new UserService(userRepository, identityCache, userPositionGrid, fcmService);
+    }
+
+    @Test
+    void unregisteredUserIsLookedUpOnce() {
+        when(userRepository.findByAuth0Id(AUTH0_ID)).thenReturn(Optional.empty());
+        Authentication authentication = new UsernamePasswordAuthenticationToken(AUTH0_ID, null, List.of());
+
+        assertThat(identityCache.find(AUTH0_ID)).isEmpty();
+        assertThat(identityCache.find(AUTH0_ID)).isEmpty();
+        assertThatThrownBy(() -> userService.getCurrentUser(authentication))
+                .isInstanceOf(EntityNotFoundException.class);
+
+        verify(userRepository, times(1)).findByAuth0Id(AUTH0_ID);
+    }
+
+    @Test
+    void getOrCreateUserInvalidatesCachedMiss() {
+        User created = User.builder().id("user-1").auth0Id(AUTH0_ID).email("new@example.com").build();
+        when(userRepository.findByAuth0Id(AUTH0_ID))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(created));
+        when(userRepository.save(any(User.class))).thenReturn(created);
+
+        assertThat(identityCache.find(AUTH0_ID)).isEmpty();
+        userService.getOrCreateUser(AUTH0_ID, "new@example.com");
+
+        assertThat(identityCache.find(AUTH0_ID))
+                .map(UserIdentityCache.UserIdentity::id)
+                .contains("user-1");
+    }
+}
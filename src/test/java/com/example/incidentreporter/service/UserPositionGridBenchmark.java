@@ -0,0 +1,92 @@
+package com.example.incidentreporter.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolución de destinatarios con la malla en memoria frente a un recorrido lineal de todas
+ * las posiciones, con 10k, 100k y 1M usuarios repartidos en ~111 km de lado.
+ * No requiere base de datos. Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.incidentreporter.service.UserPositionGridBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserPositionGridBenchmark {
+
+    private static final double LATITUDE = 4.65;
+    private static final double LONGITUDE = -74.08;
+    private static final double SPREAD_DEGREES = 1.0;
+    private static final double RADIUS_METERS = 1000;
+    private static final double NOTIFICATION_RADIUS = 5000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private UserPositionGrid grid;
+    private String[] userIds;
+    private double[] latitudes;
+    private double[] longitudes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        grid = new UserPositionGrid(null, null);
+        ReflectionTestUtils.setField(grid, "enabled", true);
+        ReflectionTestUtils.setField(grid, "maxAgeMs", TimeUnit.HOURS.toMillis(1));
+
+        userIds = new String[users];
+        latitudes = new double[users];
+        longitudes = new double[users];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < users; i++) {
+            // Mismas posiciones deterministas que BenchmarkData
+            long g = i + 1;
+            userIds[i] = "user-" + g;
+            latitudes[i] = LATITUDE + ((g * 7919) % 10007 / 10007.0 - 0.5) * SPREAD_DEGREES;
+            longitudes[i] = LONGITUDE + ((g * 104729) % 10009 / 10009.0 - 0.5) * SPREAD_DEGREES;
+            grid.update(userIds[i], latitudes[i], longitudes[i], now, "token-" + g, true, NOTIFICATION_RADIUS);
+        }
+    }
+
+    @Benchmark
+    public int gridRecipients() {
+        return grid.findRecipients(LATITUDE, LONGITUDE, RADIUS_METERS, "user-1").size();
+    }
+
+    @Benchmark
+    public int linearScanRecipients() {
+        List<String> recipients = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            if (!userIds[i].equals("user-1")
+                    && GeoUtils.distance(LATITUDE, LONGITUDE, latitudes[i], longitudes[i]) <= RADIUS_METERS) {
+                recipients.add(userIds[i]);
+            }
+        }
+        return recipients.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserPositionGridBenchmark.class.getSimpleName()).build()).run();
+    }
+}
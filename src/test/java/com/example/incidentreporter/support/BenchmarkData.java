@@ -0,0 +1,55 @@
+package com.example.incidentreporter.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Carga masiva de datos sintéticos para benchmarks.
+ * Usa generate_series en el servidor para que cargar un millón de filas tarde segundos;
+ * las posiciones son pseudoaleatorias pero deterministas, repartidas en un cuadrado de
+ * spreadDegrees grados centrado en (latitude, longitude).
+ */
+public final class BenchmarkData {
+
+    // Desplazamientos deterministas en [-0.5, 0.5) para la fila g
+    private static final String LATITUDE = "(? + (mod(g * 7919, 10007) / 10007.0 - 0.5) * ?)";
+    private static final String LONGITUDE = "(? + (mod(g * 104729, 10009) / 10009.0 - 0.5) * ?)";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Crea usuarios user-1..user-N con token FCM y una ubicación activa cada uno
+     */
+    public static void seedUsersWithLocations(JdbcTemplate jdbcTemplate, int count, double latitude,
+                                              double longitude, double spreadDegrees) {
+        jdbcTemplate.update("INSERT INTO users (id, auth0_id, email, created_at, profile_completed, " +
+                "notifications_enabled, location_sharing_enabled, notification_radius, total_incidents_reported, " +
+                "total_confirmations, verification_score, confirmations_received, denials_received, fcm_token) " +
+                "SELECT 'user-' || g, 'auth0|' || g, 'user' || g || '@example.com', now(), true, " +
+                "true, true, 5000, 0, 0, 50, 0, 0, 'token-' || g " +
+                "FROM generate_series(1, ?) g", count);
+
+        jdbcTemplate.update("INSERT INTO user_locations (id, user_id, location, latitude, longitude, accuracy, timestamp, is_active) " +
+                "SELECT 'location-' || g, 'user-' || g, ST_SetSRID(ST_MakePoint(lon, lat), 4326), lat, lon, 10, now(), true " +
+                "FROM (SELECT g, " + LATITUDE + " AS lat, " + LONGITUDE + " AS lon FROM generate_series(1, ?) g) p",
+                latitude, spreadDegrees, longitude, spreadDegrees, count);
+        jdbcTemplate.execute("ANALYZE users");
+        jdbcTemplate.execute("ANALYZE user_locations");
+    }
+
+    /**
+     * Crea incidentes incident-1..incident-N activos del autor indicado
+     */
+    public static void seedIncidents(JdbcTemplate jdbcTemplate, String reporterId, int count, double latitude,
+                                     double longitude, double spreadDegrees) {
+        jdbcTemplate.update("INSERT INTO incidents (id, reporter_id, location, latitude, longitude, title, severity, " +
+                "category, status, created_at, updated_at, expires_at, confirmation_count, denial_count, " +
+                "total_notifications, radius) " +
+                "SELECT 'incident-' || g, ?, ST_SetSRID(ST_MakePoint(lon, lat), 4326), lat, lon, 'Incident ' || g, 'MEDIUM', " +
+                "'OTHER', 'ACTIVE', now(), now(), now() + interval '1 day', 0, 0, " +
+                "0, 1000 " +
+                "FROM (SELECT g, " + LATITUDE + " AS lat, " + LONGITUDE + " AS lon FROM generate_series(1, ?) g) p",
+                reporterId, latitude, spreadDegrees, longitude, spreadDegrees, count);
+        jdbcTemplate.execute("ANALYZE incidents");
+    }
+}
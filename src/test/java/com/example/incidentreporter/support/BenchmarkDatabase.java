@@ -0,0 +1,96 @@
+package com.example.incidentreporter.support;
+
+import com.example.incidentreporter.entity.Incident;
+import com.example.incidentreporter.repository.IncidentRepository;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Base de datos PostGIS para benchmarks (JMH no arranca el contexto de Spring) y para
+ * pruebas que necesitan el SQL real de PostgreSQL.
+ * El esquema lo genera Hibernate a partir de las entidades e import.sql, igual que en
+ * producción, sin cargar servicios, tareas programadas ni Firebase; solo los repositorios.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> container;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> container, ConfigurableApplicationContext context) {
+        this.container = container;
+        this.context = context;
+    }
+
+    public static BenchmarkDatabase start() {
+        PostgreSQLContainer<?> container = PostgisContainer.create();
+        container.start();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SchemaConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + container.getJdbcUrl(),
+                        "--spring.datasource.username=" + container.getUsername(),
+                        "--spring.datasource.password=" + container.getPassword());
+        return new BenchmarkDatabase(container, context);
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return context.getBean(JdbcTemplate.class);
+    }
+
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate() {
+        return context.getBean(NamedParameterJdbcTemplate.class);
+    }
+
+    public TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    /**
+     * Repositorio Spring Data del contexto, para medir las consultas derivadas tal como las genera JPA
+     */
+    public <T> T repository(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * SQL nativo declarado en un método de repositorio, para medir exactamente la consulta de producción
+     */
+    public static String nativeQuery(Class<?> repository, String methodName) {
+        Method method = Arrays.stream(repository.getMethods())
+                .filter(candidate -> candidate.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No method " + methodName + " in " + repository.getName()));
+        Query query = method.getAnnotation(Query.class);
+        if (query == null || !query.nativeQuery()) {
+            throw new IllegalArgumentException(methodName + " is not a native query");
+        }
+        return query.value();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        container.stop();
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Incident.class)
+    @EnableJpaRepositories(basePackageClasses = IncidentRepository.class)
+    static class SchemaConfiguration {
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.incidentreporter.support;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * JWKS local con una clave RSA generada al vuelo, publicado en un fichero temporal (URI file:)
+ * para verificar firmas sin red. Firma tokens RS256 con la clave privada correspondiente.
+ */
+public final class LocalJwks implements AutoCloseable {
+
+    private final RSAKey key;
+    private final Path file;
+    private final Algorithm algorithm;
+
+    private LocalJwks(RSAKey key, Path file) throws JOSEException {
+        this.key = key;
+        this.file = file;
+        this.algorithm = Algorithm.RSA256(key.toRSAPublicKey(), key.toRSAPrivateKey());
+    }
+
+    public static LocalJwks create(String keyId) {
+        try {
+            RSAKey key = new RSAKeyGenerator(2048).keyID(keyId).keyUse(KeyUse.SIGNATURE).generate();
+            Path file = Files.createTempFile("jwks-", ".json");
+            Files.writeString(file, new JWKSet(key.toPublicJWK()).toString());
+            return new LocalJwks(key, file);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not generate RSA key", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String keyId() {
+        return key.getKeyID();
+    }
+
+    public String uri() {
+        return file.toUri().toString();
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public String sign(String issuer, String audience, String subject, String email, Instant expiresAt) {
+        return JWT.create()
+                .withKeyId(key.getKeyID())
+                .withIssuer(issuer)
+                .withAudience(audience)
+                .withSubject(subject)
+                .withClaim("email", email)
+                .withExpiresAt(expiresAt)
+                .sign(algorithm);
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
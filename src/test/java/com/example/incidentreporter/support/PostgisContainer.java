@@ -0,0 +1,20 @@
+package com.example.incidentreporter.support;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Contenedor PostgreSQL con PostGIS para pruebas y benchmarks contra la base real
+ */
+public final class PostgisContainer {
+
+    private static final DockerImageName IMAGE = DockerImageName.parse("postgis/postgis:16-3.4")
+            .asCompatibleSubstituteFor("postgres");
+
+    private PostgisContainer() {
+    }
+
+    public static PostgreSQLContainer<?> create() {
+        return new PostgreSQLContainer<>(IMAGE);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.incidentreporter.support;
+
+import com.example.incidentreporter.service.PushGateway;
+import com.google.firebase.ErrorCode;
+import com.google.firebase.FirebaseException;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Doble de PushGateway para pruebas y benchmarks: responde a cada multicast tras una
+ * latencia fija, con éxito salvo para los tokens configurados con un código de error.
+ * Registra el tamaño de cada multicast y el máximo de llamadas simultáneas.
+ */
+public class StubPushGateway implements PushGateway {
+
+    private final long latencyMs;
+    private final Map<String, MessagingErrorCode> tokenErrors = new ConcurrentHashMap<>();
+    private final Map<MessagingErrorCode, SendResponse> errorResponses = new ConcurrentHashMap<>();
+    private final SendResponse success = sendResponse("fromMessageId", String.class, "projects/test/messages/1");
+    private final List<List<String>> multicasts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public StubPushGateway(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * Hace que los envíos al token fallen con el código indicado
+     */
+    public StubPushGateway failToken(String token, MessagingErrorCode code) {
+        errorResponses.computeIfAbsent(code, StubPushGateway::failure);
+        tokenErrors.put(token, code);
+        return this;
+    }
+
+    /**
+     * Tokens de cada multicast recibido, en orden de llegada
+     */
+    public List<List<String>> multicasts() {
+        return multicasts;
+    }
+
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendEachForMulticastAsync(MulticastMessage message) {
+        @SuppressWarnings("unchecked")
+        List<String> tokens = List.copyOf((List<String>) ReflectionTestUtils.getField(message, "tokens"));
+        multicasts.add(tokens);
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+        return CompletableFuture.supplyAsync(() -> {
+            List<SendResponse> responses = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                MessagingErrorCode code = tokenErrors.get(token);
+                responses.add(code == null ? success : errorResponses.get(code));
+            }
+            inFlight.decrementAndGet();
+            return batch(responses);
+        }, CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public CompletableFuture<String> sendAsync(Message message, boolean dryRun) {
+        return CompletableFuture.supplyAsync(() -> "projects/test/messages/1",
+                CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendEachAsync(List<Message> messages, boolean dryRun) {
+        List<SendResponse> responses = new ArrayList<>();
+        messages.forEach(message -> responses.add(success));
+        return CompletableFuture.supplyAsync(() -> batch(responses),
+                CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS));
+    }
+
+    // SendResponse y FirebaseMessagingException solo se construyen con factorías de paquete del SDK
+    private static SendResponse failure(MessagingErrorCode code) {
+        Method withCode = ReflectionUtils.findMethod(FirebaseMessagingException.class, "withMessagingErrorCode",
+                FirebaseException.class, MessagingErrorCode.class);
+        ReflectionUtils.makeAccessible(withCode);
+        Object exception = ReflectionUtils.invokeMethod(withCode, null,
+                new FirebaseException(ErrorCode.UNAVAILABLE, code.name(), null), code);
+        return sendResponse("fromException", FirebaseMessagingException.class, exception);
+    }
+
+    private static SendResponse sendResponse(String factory, Class<?> parameterType, Object argument) {
+        Method method = ReflectionUtils.findMethod(SendResponse.class, factory, parameterType);
+        ReflectionUtils.makeAccessible(method);
+        return (SendResponse) ReflectionUtils.invokeMethod(method, null, argument);
+    }
+
+    private static BatchResponse batch(List<SendResponse> responses) {
+        int successCount = (int) responses.stream().filter(SendResponse::isSuccessful).count();
+        return new BatchResponse() {
+            @Override
+            public List<SendResponse> getResponses() {
+                return responses;
+            }
+
+            @Override
+            public int getSuccessCount() {
+                return successCount;
+            }
+
+            @Override
+            public int getFailureCount() {
+                return responses.size() - successCount;
+            }
+        };
+    }
+}